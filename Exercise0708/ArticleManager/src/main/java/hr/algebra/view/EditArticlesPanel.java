@@ -7,9 +7,12 @@ package hr.algebra.view;
 import hr.algebra.dal.Repository;
 import hr.algebra.dal.RepositoryFactory;
 import hr.algebra.model.Article;
+import hr.algebra.utilities.AssetStore;
 import hr.algebra.utilities.FileUtils;
+import hr.algebra.utilities.IconCache;
 import hr.algebra.utilities.IconUtils;
 import hr.algebra.utilities.MessageUtils;
+import hr.algebra.utilities.Thumbnails;
 import hr.algebra.view.model.ArticleTableModel;
 import java.io.File;
 import java.io.IOException;
@@ -19,11 +22,13 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingWorker;
 import javax.swing.text.JTextComponent;
 
 /**
@@ -269,7 +274,9 @@ public class EditArticlesPanel extends javax.swing.JPanel {
         );
     }// </editor-fold>//GEN-END:initComponents
 
-    private static final String DIR = "assets";
+    private static final String NO_IMAGE = "/assets/no_image.png";
+    private static final String LOADING = "Loading...";
+
     private List<JTextComponent> validationFields;
     private List<JLabel> errorLabels;
 
@@ -277,6 +284,7 @@ public class EditArticlesPanel extends javax.swing.JPanel {
     private ArticleTableModel model;
 
     private Article selectedArticle;
+    private SwingWorker<ImageIcon, Void> pictureLoader;
 
     private void btnChooseActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnChooseActionPerformed
         File file = FileUtils.uploadFile("Images", "jpg", "jpeg", "png");
@@ -310,6 +318,7 @@ public class EditArticlesPanel extends javax.swing.JPanel {
                             tfPublishedDate.getText().trim(),
                             Article.DATE_FORMATTER
                     ));
+            article.setThumbnailPath(Thumbnails.pathFor(localPath));
 
             repository.createArticle(article);
 
@@ -343,14 +352,15 @@ public class EditArticlesPanel extends javax.swing.JPanel {
 
         try {
 
-            if (tfPicturePath.getText().trim().equals(selectedArticle.getPicturePath())) {
+            if (!tfPicturePath.getText().trim().equals(selectedArticle.getPicturePath())) {
 
                 if (selectedArticle.getPicturePath() != null) {
-                    Files.deleteIfExists(Paths.get(selectedArticle.getPicturePath()));
+                    AssetStore.release(selectedArticle.getPicturePath());
                 }
 
                 String localPath = uploadPicture();
                 selectedArticle.setPicturePath(localPath);
+                selectedArticle.setThumbnailPath(Thumbnails.pathFor(localPath));
             }
 
             selectedArticle.setTitle(tfTitle.getText().trim());
@@ -380,7 +390,7 @@ public class EditArticlesPanel extends javax.swing.JPanel {
         try {
 
             if (selectedArticle.getPicturePath() != null) {
-                Files.deleteIfExists(Paths.get(selectedArticle.getPicturePath()));
+                AssetStore.release(selectedArticle.getPicturePath());
             }
 
             repository.deleteArticle(selectedArticle.getId());
@@ -455,10 +465,75 @@ public class EditArticlesPanel extends javax.swing.JPanel {
     private void clearForm() {
         hideErrors();
         validationFields.forEach(e -> e.setText(""));
-        lbIcon.setIcon(new javax.swing.ImageIcon(getClass().getResource("/assets/no_image.png")));
+        showPicture(null);
         selectedArticle = null;
     }
 
+    // cached by the stored path, so a revisited article does not touch the disk;
+    // anything else is decoded by a worker, only the latest selection's is shown
+    private void showPicture(String picturePath) {
+        if (pictureLoader != null) {
+            pictureLoader.cancel(true);
+            pictureLoader = null;
+        }
+        tfPicturePath.setText(picturePath == null ? "" : picturePath);
+        if (picturePath == null) {
+            setPicture(new ImageIcon(getClass().getResource(NO_IMAGE)));
+            return;
+        }
+        int width = lbIcon.getWidth();
+        int height = lbIcon.getHeight();
+        ImageIcon cached = IconCache.getIfPresent(picturePath, width, height);
+        if (cached != null) {
+            setPicture(cached);
+            return;
+        }
+
+        lbIcon.setIcon(null);
+        lbIcon.setText(LOADING);
+        pictureLoader = new SwingWorker<>() {
+            @Override
+            protected ImageIcon doInBackground() throws Exception {
+                // a decode cannot be interrupted, but a queued stale one can be skipped
+                if (isCancelled()) {
+                    return null;
+                }
+                if (!Files.exists(Paths.get(picturePath))) {
+                    return new ImageIcon(getClass().getResource(NO_IMAGE));
+                }
+                String thumbnail = Thumbnails.forSize(picturePath, width, height);
+                if (thumbnail.equals(picturePath)) {
+                    // e.g. ingested by a daemon without thumbnails, next time it is there
+                    Thumbnails.createAsync(picturePath);
+                }
+                ImageIcon icon = IconUtils.createIcon(new File(thumbnail), width, height);
+                IconCache.put(picturePath, width, height, icon);
+                return icon;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || pictureLoader != this) {
+                    return;
+                }
+                pictureLoader = null;
+                try {
+                    setPicture(get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    Logger.getLogger(EditArticlesPanel.class.getName()).log(Level.SEVERE, null, ex);
+                    setPicture(new ImageIcon(getClass().getResource(NO_IMAGE)));
+                    MessageUtils.showErrorMessage("Error", "Unable to set icon!");
+                }
+            }
+        };
+        pictureLoader.execute();
+    }
+
+    private void setPicture(ImageIcon icon) {
+        lbIcon.setText(null);
+        lbIcon.setIcon(icon);
+    }
+
     private void setIcon(JLabel label, File file) {
         try {
             label.setIcon(IconUtils.createIcon(file, label.getWidth(), label.getHeight()));
@@ -510,16 +585,9 @@ public class EditArticlesPanel extends javax.swing.JPanel {
 
     private String uploadPicture() throws IOException {
 
-        String path = tfPicturePath.getText();
-        String ext = path.substring(path.lastIndexOf("."));
-
-        String name = UUID.randomUUID() + ext;
-
-        String localPath = DIR + File.separator + name;
-
-        FileUtils.copy(path, localPath);
-
-        return localPath;
+        String picturePath = AssetStore.storeFile(tfPicturePath.getText());
+        Thumbnails.createAsync(picturePath);
+        return picturePath;
 
     }
 
@@ -546,10 +614,7 @@ public class EditArticlesPanel extends javax.swing.JPanel {
         taDesc.setText(article.getDescription());
         tfPublishedDate.setText(article.getPublishedDate().format(Article.DATE_FORMATTER));
 
-        if (article.getPicturePath() != null && Files.exists(Paths.get(article.getPicturePath()))) {
-            tfPicturePath.setText(article.getPicturePath());
-            setIcon(lbIcon, new File(article.getPicturePath()));
-        }
+        showPicture(article.getPicturePath());
 
     }
 }
@@ -6,11 +6,21 @@ package hr.algebra.view;
 
 import hr.algebra.dal.Repository;
 import hr.algebra.dal.RepositoryFactory;
+import hr.algebra.ingestion.FeedScheduler;
+import hr.algebra.ingestion.IngestionEngine;
+import hr.algebra.ingestion.KnownArticleIndex;
 import hr.algebra.model.Article;
-import hr.algebra.parsers.rss.ArticleParser;
 import hr.algebra.utilities.MessageUtils;
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.swing.DefaultListModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 /**
  *
@@ -20,6 +30,8 @@ public class UploadArticlesPanel extends javax.swing.JPanel {
 
     private DefaultListModel<Article> model;
     private Repository repository;
+    private FeedScheduler scheduler;
+    private Window window;
 
     /**
      * Creates new form UploadArticlesPanel
@@ -74,15 +86,49 @@ public class UploadArticlesPanel extends javax.swing.JPanel {
     }// </editor-fold>//GEN-END:initComponents
 
     private void btnUploadActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnUploadActionPerformed
-        try {
-            List<Article> articles = ArticleParser.parse();
-            repository.createArticles(articles);
-            loadModel();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // fetching every feed takes seconds, keep the window responsive
+        btnUpload.setEnabled(false);
+        new SwingWorker<List<Article>, Void>() {
+            @Override
+            protected List<Article> doInBackground() throws Exception {
+                IngestionEngine.ingest(repository);
+                return repository.selectArticles();
+            }
+
+            @Override
+            protected void done() {
+                btnUpload.setEnabled(true);
+                try {
+                    showArticles(get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    Logger.getLogger(UploadArticlesPanel.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }.execute();
     }//GEN-LAST:event_btnUploadActionPerformed
 
+    // the scheduler lives as long as the window holding the panel
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (window == null) {
+            window = SwingUtilities.getWindowAncestor(this);
+            window.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    // with EXIT_ON_CLOSE there is no windowClosed, stop before the exit
+                    window.setVisible(false);
+                    stopScheduler();
+                }
+
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    stopScheduler();
+                }
+            });
+        }
+    }
+
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton btnUpload;
     private javax.swing.JScrollPane jScrollPane2;
@@ -94,20 +140,55 @@ public class UploadArticlesPanel extends javax.swing.JPanel {
             repository = RepositoryFactory.getInstance();
             model = new DefaultListModel<>();
             loadModel();
+            loadKnownArticles();
+            startScheduler();
         } catch (Exception e) {
             MessageUtils.showErrorMessage("Critical", "Exiting...");
             System.exit(1);
         }
     }
 
-    private void loadModel() {
+    private void loadKnownArticles() {
+        try {
+            KnownArticleIndex.load(repository);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void startScheduler() {
+        try {
+            scheduler = new FeedScheduler(repository, () -> SwingUtilities.invokeLater(this::loadModel));
+            scheduler.start();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // waits for running polls, so articles they parsed are still stored
+    private void stopScheduler() {
+        if (scheduler == null) {
+            return;
+        }
         try {
-            List<Article> articles = repository.selectArticles();
-            articles.forEach(model::addElement);
-            lsArticles.setModel(model);
+            scheduler.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
 
+    private void loadModel() {
+        try {
+            showArticles(repository.selectArticles());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    private void showArticles(List<Article> articles) {
+        model.clear();
+        articles.forEach(model::addElement);
+        lsArticles.setModel(model);
+    }
 }
@@ -0,0 +1,86 @@
+-- Adds the feed an article came from (Article.source) and the path of its
+-- smallest thumbnail (Article.thumbnailPath) as Source / ThumbnailPath
+-- parameters and columns to the article procedures SqlRepository calls, and
+-- the per feed link lookup ingestion workers run when they take a feed over.
+-- The script can be run again.
+
+IF COL_LENGTH('Article', 'Source') IS NULL
+    ALTER TABLE Article ADD Source NVARCHAR(100) NULL
+GO
+
+IF COL_LENGTH('Article', 'ThumbnailPath') IS NULL
+    ALTER TABLE Article ADD ThumbnailPath NVARCHAR(MAX) NULL
+GO
+
+CREATE OR ALTER PROCEDURE createArticle
+    @Title NVARCHAR(MAX),
+    @Link NVARCHAR(MAX),
+    @Description NVARCHAR(MAX),
+    @PicturePath NVARCHAR(MAX),
+    @PublishedDate NVARCHAR(50),
+    @Source NVARCHAR(100) = NULL,
+    @ThumbnailPath NVARCHAR(MAX) = NULL,
+    @IDArticle INT OUTPUT
+AS
+BEGIN
+    INSERT INTO Article (Title, Link, Description, PicturePath, PublishedDate, Source, ThumbnailPath)
+    VALUES (@Title, @Link, @Description, @PicturePath, @PublishedDate, @Source, @ThumbnailPath)
+    SET @IDArticle = SCOPE_IDENTITY()
+END
+GO
+
+CREATE OR ALTER PROCEDURE updateArticle
+    @Title NVARCHAR(MAX),
+    @Link NVARCHAR(MAX),
+    @Description NVARCHAR(MAX),
+    @PicturePath NVARCHAR(MAX),
+    @PublishedDate NVARCHAR(50),
+    @Source NVARCHAR(100) = NULL,
+    @ThumbnailPath NVARCHAR(MAX) = NULL,
+    @IDArticle INT
+AS
+BEGIN
+    -- articles edited by hand keep the feed they came from
+    UPDATE Article
+    SET Title = @Title,
+        Link = @Link,
+        Description = @Description,
+        PicturePath = @PicturePath,
+        PublishedDate = @PublishedDate,
+        Source = COALESCE(@Source, Source),
+        ThumbnailPath = @ThumbnailPath
+    WHERE IDArticle = @IDArticle
+END
+GO
+
+CREATE OR ALTER PROCEDURE selectArticle
+    @IDArticle INT
+AS
+BEGIN
+    SELECT IDArticle, Title, Link, Description, PicturePath, PublishedDate, Source, ThumbnailPath
+    FROM Article
+    WHERE IDArticle = @IDArticle
+END
+GO
+
+CREATE OR ALTER PROCEDURE selectArticles
+AS
+BEGIN
+    SELECT IDArticle, Title, Link, Description, PicturePath, PublishedDate, Source, ThumbnailPath
+    FROM Article
+END
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Article_Source' AND object_id = OBJECT_ID('Article'))
+    CREATE INDEX IX_Article_Source ON Article (Source) INCLUDE (Link)
+GO
+
+CREATE OR ALTER PROCEDURE selectArticleLinks
+    @Source NVARCHAR(100)
+AS
+BEGIN
+    SELECT Link
+    FROM Article
+    WHERE Source = @Source
+END
+GO
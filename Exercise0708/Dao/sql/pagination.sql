@@ -0,0 +1,52 @@
+-- Keyset pages for SqlRepository.selectArticlesAfter and
+-- SqlRepository.selectArticlesPublishedAfter. Each page is an index seek
+-- from the last row of the previous page, never an OFFSET scan. The
+-- script can be run again, after articles.sql.
+
+-- an index from before ThumbnailPath is rebuilt, so the pages stay covered
+IF EXISTS (SELECT 1 FROM sys.indexes
+        WHERE name = 'IX_Article_PublishedDate_IDArticle' AND object_id = OBJECT_ID('Article'))
+    AND NOT EXISTS (SELECT 1 FROM sys.index_columns ic
+        JOIN sys.indexes i ON i.object_id = ic.object_id AND i.index_id = ic.index_id
+        WHERE i.name = 'IX_Article_PublishedDate_IDArticle' AND ic.object_id = OBJECT_ID('Article')
+            AND ic.column_id = COLUMNPROPERTY(OBJECT_ID('Article'), 'ThumbnailPath', 'ColumnId'))
+    DROP INDEX IX_Article_PublishedDate_IDArticle ON Article
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+        WHERE name = 'IX_Article_PublishedDate_IDArticle' AND object_id = OBJECT_ID('Article'))
+    CREATE INDEX IX_Article_PublishedDate_IDArticle ON Article (PublishedDate, IDArticle)
+        INCLUDE (Title, Link, Description, PicturePath, Source, ThumbnailPath)
+GO
+
+CREATE OR ALTER PROCEDURE selectArticlesAfter
+    @IDArticle INT,
+    @Limit INT
+AS
+BEGIN
+    SELECT TOP (@Limit) IDArticle, Title, Link, Description, PicturePath, PublishedDate, Source, ThumbnailPath
+    FROM Article
+    WHERE IDArticle > @IDArticle
+    ORDER BY IDArticle
+END
+GO
+
+CREATE OR ALTER PROCEDURE selectArticlesPublishedAfter
+    @PublishedDate NVARCHAR(50),
+    @IDArticle INT,
+    @Limit INT
+AS
+BEGIN
+    -- separate statements, an OR on the NULL check would turn the seek into a scan
+    IF @PublishedDate IS NULL
+        SELECT TOP (@Limit) IDArticle, Title, Link, Description, PicturePath, PublishedDate, Source, ThumbnailPath
+        FROM Article
+        ORDER BY PublishedDate, IDArticle
+    ELSE
+        SELECT TOP (@Limit) IDArticle, Title, Link, Description, PicturePath, PublishedDate, Source, ThumbnailPath
+        FROM Article
+        WHERE PublishedDate > @PublishedDate
+            OR (PublishedDate = @PublishedDate AND IDArticle > @IDArticle)
+        ORDER BY PublishedDate, IDArticle
+END
+GO
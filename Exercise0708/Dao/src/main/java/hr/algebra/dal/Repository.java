@@ -5,8 +5,10 @@
 package hr.algebra.dal;
 
 import hr.algebra.model.Article;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  *
@@ -14,9 +16,44 @@ import java.util.Optional;
  */
 public interface Repository {
     int createArticle(Article article) throws Exception;
-    void createArticles(List<Article> articles) throws Exception;
+    /**
+     * Inserts in batches of BATCH_SIZE, all in one transaction. When a
+     * batch fails none of the articles is stored.
+     *
+     * @return the generated ids in the order of the articles
+     */
+    List<Integer> createArticles(List<Article> articles) throws Exception;
+    /**
+     * Inserts new articles and updates the ones already stored under the
+     * same link, all in one transaction. Meant for large imports such as
+     * archive replays, the articles are read from the iterable only once.
+     *
+     * @return the number of articles inserted or updated
+     */
+    int upsertArticles(Iterable<Article> articles) throws Exception;
     void updateArticle(int id, Article article) throws Exception;
     void deleteArticle(int id) throws Exception;
     Optional<Article> selectArticle(int id) throws Exception;
     List<Article> selectArticles() throws Exception;
+    /**
+     * All articles, read from the database while the stream is consumed.
+     * The stream holds a connection until it is closed, so use it in
+     * try-with-resources.
+     */
+    Stream<Article> streamArticles() throws Exception;
+    /**
+     * Links of the articles stored from the given feed.
+     */
+    List<String> selectLinks(String source) throws Exception;
+    /**
+     * A page of articles by id, pass 0 for the first page and the id of
+     * the last article for the next one.
+     */
+    List<Article> selectArticlesAfter(int id, int limit) throws Exception;
+    /**
+     * A page of articles by published date, oldest first. Pass null for
+     * the first page and the date and id of the last article for the next
+     * one, the id orders articles published at the same time.
+     */
+    List<Article> selectArticlesPublishedAfter(LocalDateTime publishedDate, int id, int limit) throws Exception;
 }
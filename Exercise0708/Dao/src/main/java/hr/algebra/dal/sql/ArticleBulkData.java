@@ -0,0 +1,101 @@
+package hr.algebra.dal.sql;
+
+import com.microsoft.sqlserver.jdbc.ISQLServerBulkData;
+import hr.algebra.model.Article;
+import java.sql.Types;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Feeds articles to SQLServerBulkCopy one row at a time, so the source
+ * is never copied into memory. Columns match the staging table created
+ * by SqlRepository.upsertArticles, Position keeps the input order.
+ */
+final class ArticleBulkData implements ISQLServerBulkData {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String[] COLUMNS = {"Position", "Title", "Link", "Description", "PicturePath", "PublishedDate", "Source", "ThumbnailPath"};
+
+    // anything over 4000 characters is sent as NVARCHAR(MAX)
+    private static final int MAX = Integer.MAX_VALUE;
+    private static final int DATE_LENGTH = 50;
+    private static final int SOURCE_LENGTH = 100;
+
+    private final transient Iterator<? extends Article> articles;
+    private Object[] row;
+    private int position;
+
+    ArticleBulkData(Iterable<? extends Article> articles) {
+        this.articles = articles.iterator();
+    }
+
+    int getCount() {
+        return position;
+    }
+
+    @Override
+    public Set<Integer> getColumnOrdinals() {
+        Set<Integer> ordinals = new LinkedHashSet<>();
+        for (int i = 1; i <= COLUMNS.length; i++) {
+            ordinals.add(i);
+        }
+        return ordinals;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column - 1];
+    }
+
+    @Override
+    public int getColumnType(int column) {
+        return column == 1 ? Types.INTEGER : Types.NVARCHAR;
+    }
+
+    @Override
+    public int getPrecision(int column) {
+        switch (column) {
+            case 1:
+                return 10;
+            case 6:
+                return DATE_LENGTH;
+            case 7:
+                return SOURCE_LENGTH;
+            default:
+                return MAX;
+        }
+    }
+
+    @Override
+    public int getScale(int column) {
+        return 0;
+    }
+
+    @Override
+    public Object[] getRowData() {
+        return row;
+    }
+
+    @Override
+    public boolean next() {
+        if (!articles.hasNext()) {
+            row = null;
+            return false;
+        }
+        Article article = articles.next();
+        row = new Object[]{
+            position++,
+            article.getTitle(),
+            article.getLink(),
+            article.getDescription(),
+            article.getPicturePath(),
+            article.getPublishedDate().format(Article.DATE_FORMATTER),
+            article.getSource(),
+            article.getThumbnailPath()
+        };
+        return true;
+    }
+
+}
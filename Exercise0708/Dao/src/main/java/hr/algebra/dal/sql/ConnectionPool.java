@@ -0,0 +1,401 @@
+package hr.algebra.dal.sql;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Keeps physical connections of another data source open between calls.
+ * Borrowed connections are handed out as proxies whose close() returns
+ * them to the pool. A connection idle for more than a moment is validated
+ * before it is handed out again; idle connections above the minimum are
+ * closed after the idle timeout and every connection is replaced once it
+ * reaches its maximum lifetime.
+ */
+public final class ConnectionPool implements DataSource {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    // connections returned this recently are not validated again
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final long HOUSEKEEPING_SECONDS = 30;
+
+    private final DataSource dataSource;
+    private final int minSize;
+    private final int maxSize;
+    private final long connectionTimeoutNanos;
+    private final long idleTimeoutNanos;
+    private final long maxLifetimeNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition returned = lock.newCondition();
+    private final Deque<Pooled> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService housekeeper = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("connection-pool").daemon().factory());
+
+    private int total;
+    private int waiting;
+    private long borrows;
+    private long waits;
+    private long waitNanos;
+    private long maxWaitNanos;
+    private long created;
+    private long retired;
+
+    public ConnectionPool(DataSource dataSource, int minSize, int maxSize,
+            Duration connectionTimeout, Duration idleTimeout, Duration maxLifetime) {
+        this.dataSource = dataSource;
+        this.minSize = minSize;
+        this.maxSize = Math.max(1, maxSize);
+        this.connectionTimeoutNanos = connectionTimeout.toNanos();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.maxLifetimeNanos = maxLifetime.toNanos();
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, HOUSEKEEPING_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + connectionTimeoutNanos;
+        boolean waited = false;
+        while (true) {
+            Pooled pooled = null;
+            boolean create = false;
+            lock.lock();
+            try {
+                while (pooled == null && !create) {
+                    pooled = idle.pollFirst();
+                    if (pooled == null && total < maxSize) {
+                        total++;
+                        create = true;
+                    } else if (pooled == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw new SQLException("Timed out after " + Duration.ofNanos(connectionTimeoutNanos)
+                                    + " waiting for a connection, " + total + " in use");
+                        }
+                        waited = true;
+                        waiting++;
+                        try {
+                            returned.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted while waiting for a connection", e);
+                        } finally {
+                            waiting--;
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                pooled = open();
+            } else if (!usable(pooled)) {
+                retire(pooled);
+                continue;
+            }
+            recordBorrow(System.nanoTime() - start, waited);
+            return pooled.lend();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections all use the configured user");
+    }
+
+    public int getActive() {
+        lock.lock();
+        try {
+            return total - idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdle() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getStats() {
+        lock.lock();
+        try {
+            return String.format("%d active, %d idle, %d waiting, %d borrows (%d waited, avg %.2f ms, max %.2f ms), %d opened, %d retired",
+                    total - idle.size(), idle.size(), waiting, borrows, waits,
+                    borrows == 0 ? 0 : waitNanos / 1e6 / borrows, maxWaitNanos / 1e6, created, retired);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the idle connections, connections still lent out are closed
+     * when they are returned.
+     */
+    public void close() {
+        housekeeper.shutdownNow();
+        List<Pooled> closing;
+        lock.lock();
+        try {
+            closing = new ArrayList<>(idle);
+            idle.clear();
+        } finally {
+            lock.unlock();
+        }
+        closing.forEach(this::retire);
+    }
+
+    private Pooled open() throws SQLException {
+        try {
+            Connection connection = dataSource.getConnection();
+            lock.lock();
+            try {
+                created++;
+            } finally {
+                lock.unlock();
+            }
+            return new Pooled(connection);
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                total--;
+                returned.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private boolean usable(Pooled pooled) {
+        long now = System.nanoTime();
+        if (now - pooled.opened > maxLifetimeNanos) {
+            return false;
+        }
+        if (now - pooled.lastReturned < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(Pooled pooled) {
+        boolean keep = System.nanoTime() - pooled.opened < maxLifetimeNanos && !housekeeper.isShutdown();
+        try {
+            if (keep && !pooled.connection.getAutoCommit()) {
+                // do not let the next borrower commit someone else's work
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            keep = false;
+        }
+        if (!keep) {
+            retire(pooled);
+            return;
+        }
+        lock.lock();
+        try {
+            pooled.lastReturned = System.nanoTime();
+            idle.addFirst(pooled);
+            returned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void retire(Pooled pooled) {
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Closing a retired connection failed", e);
+        }
+        lock.lock();
+        try {
+            total--;
+            retired++;
+            returned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordBorrow(long nanos, boolean waited) {
+        lock.lock();
+        try {
+            borrows++;
+            if (waited) {
+                waits++;
+            }
+            waitNanos += nanos;
+            maxWaitNanos = Math.max(maxWaitNanos, nanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void houseKeep() {
+        List<Pooled> expired = new ArrayList<>();
+        int missing;
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            // oldest returned are at the end
+            Iterator<Pooled> connections = idle.descendingIterator();
+            while (connections.hasNext()) {
+                Pooled pooled = connections.next();
+                boolean overLifetime = now - pooled.opened > maxLifetimeNanos;
+                boolean overIdle = now - pooled.lastReturned > idleTimeoutNanos && total - expired.size() > minSize;
+                if (overLifetime || overIdle) {
+                    connections.remove();
+                    expired.add(pooled);
+                }
+            }
+            missing = Math.max(0, minSize - (total - expired.size()));
+        } finally {
+            lock.unlock();
+        }
+        expired.forEach(this::retire);
+
+        for (int i = 0; i < missing; i++) {
+            lock.lock();
+            try {
+                if (total >= minSize) {
+                    break;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                giveBack(open());
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Cannot open a pooled connection", e);
+                break;
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    private final class Pooled {
+
+        private final Connection connection;
+        private final long opened = System.nanoTime();
+        private long lastReturned = opened;
+
+        private Pooled(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * A handle that returns the connection on close and is unusable
+         * afterwards, so a stale handle cannot touch the next borrower's
+         * session.
+         */
+        private Connection lend() {
+            boolean[] closed = {false};
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                if (!closed[0]) {
+                                    closed[0] = true;
+                                    giveBack(this);
+                                }
+                                return null;
+                            case "isClosed":
+                                return closed[0] || connection.isClosed();
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "toString":
+                                return "Pooled " + connection;
+                        }
+                        if (closed[0]) {
+                            throw new SQLException("Connection is closed");
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+    }
+
+}
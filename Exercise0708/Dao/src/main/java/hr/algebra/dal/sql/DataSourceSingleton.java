@@ -7,6 +7,7 @@ package hr.algebra.dal.sql;
 
 import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.Properties;
 import javax.sql.DataSource;
 
@@ -24,6 +25,15 @@ public final class DataSourceSingleton {
     private static final String DATABASE_NAME = "DATABASE_NAME";
     private static final String USER = "USER"; 
     private static final String PASSWORD = "PASSWORD"; 
+    private static final String POOL_MIN_SIZE = "POOL_MIN_SIZE";
+    private static final String POOL_MAX_SIZE = "POOL_MAX_SIZE";
+    private static final String POOL_CONNECTION_TIMEOUT_SECONDS = "POOL_CONNECTION_TIMEOUT_SECONDS";
+    private static final String POOL_IDLE_TIMEOUT_SECONDS = "POOL_IDLE_TIMEOUT_SECONDS";
+    private static final String POOL_MAX_LIFETIME_SECONDS = "POOL_MAX_LIFETIME_SECONDS";
+    private static final String BATCH_SIZE = "BATCH_SIZE";
+    private static final String BULK_BATCH_SIZE = "BULK_BATCH_SIZE";
+    private static final String ARTICLE_TABLE = "ARTICLE_TABLE";
+    private static final String FETCH_SIZE = "FETCH_SIZE";
     
     static {
         try (InputStream is = DataSourceSingleton.class.getResourceAsStream(PATH)){
@@ -37,7 +47,8 @@ public final class DataSourceSingleton {
 
     private static DataSource instance;
 
-    public static DataSource getInstance() {
+    // repositories are shared by the ingestion threads, so only one pool may be created
+    public static synchronized DataSource getInstance() {
         if (instance == null) {
             instance = createInstance();
         }
@@ -49,6 +60,31 @@ public final class DataSourceSingleton {
         dataSource.setDatabaseName(PROPERTIES.getProperty(DATABASE_NAME));
         dataSource.setUser(PROPERTIES.getProperty(USER));
         dataSource.setPassword(PROPERTIES.getProperty(PASSWORD));
-        return dataSource;
-    }    
+        return new ConnectionPool(dataSource,
+                getInt(POOL_MIN_SIZE, 2),
+                getInt(POOL_MAX_SIZE, 10),
+                Duration.ofSeconds(getInt(POOL_CONNECTION_TIMEOUT_SECONDS, 30)),
+                Duration.ofSeconds(getInt(POOL_IDLE_TIMEOUT_SECONDS, 600)),
+                Duration.ofSeconds(getInt(POOL_MAX_LIFETIME_SECONDS, 1800)));
+    }
+
+    static int getBatchSize() {
+        return getInt(BATCH_SIZE, 200);
+    }
+
+    static int getBulkBatchSize() {
+        return getInt(BULK_BATCH_SIZE, 10000);
+    }
+
+    static int getFetchSize() {
+        return getInt(FETCH_SIZE, 1000);
+    }
+
+    static String getArticleTable() {
+        return PROPERTIES.getProperty(ARTICLE_TABLE, "Article").trim();
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        return Integer.parseInt(PROPERTIES.getProperty(key, String.valueOf(defaultValue)).trim());
+    }
 }
@@ -4,16 +4,28 @@
  */
 package hr.algebra.dal.sql;
 
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopy;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection;
+import com.microsoft.sqlserver.jdbc.SQLServerStatement;
 import hr.algebra.dal.Repository;
 import hr.algebra.model.Article;
 import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 
 public class SqlRepository implements Repository {
@@ -24,12 +36,48 @@ public class SqlRepository implements Repository {
     private static final String DESCRIPTION = "Description";
     private static final String PICTURE_PATH = "PicturePath";
     private static final String PUBLISHED_DATE = "PublishedDate";
+    private static final String SOURCE = "Source";
+    private static final String THUMBNAIL_PATH = "ThumbnailPath";
 
-    private static final String CREATE_ARTICLE = "{ CALL createArticle (?,?,?,?,?,?) }";
-    private static final String UPDATE_ARTICLE = "{ CALL updateArticle (?,?,?,?,?,?) }";
+    private static final String CREATE_ARTICLE = "{ CALL createArticle (?,?,?,?,?,?,?,?) }";
+    private static final String UPDATE_ARTICLE = "{ CALL updateArticle (?,?,?,?,?,?,?,?) }";
     private static final String DELETE_ARTICLE = "{ CALL deleteArticle (?) }";
     private static final String SELECT_ARTICLE = "{ CALL selectArticle (?) }";
     private static final String SELECT_ARTICLES = "{ CALL selectArticles }";
+    private static final String SELECT_ARTICLE_LINKS = "{ CALL selectArticleLinks (?) }";
+    private static final String SELECT_ARTICLES_AFTER = "{ CALL selectArticlesAfter (?,?) }";
+    private static final String SELECT_ARTICLES_PUBLISHED_AFTER = "{ CALL selectArticlesPublishedAfter (?,?,?) }";
+
+    private static final String LIMIT = "Limit";
+
+    // rows are read off the wire as the caller asks for them, not all at execute
+    private static final String ADAPTIVE_BUFFERING = "adaptive";
+
+    // a batch of createArticle calls in one round trip, collecting the OUTPUT ids
+    private static final String CREATE_ARTICLES_HEAD = "SET NOCOUNT ON; DECLARE @id INT; DECLARE @ids TABLE (Position INT, IDArticle INT); ";
+    private static final String CREATE_ARTICLES_ROW = "EXEC createArticle @Title = ?, @Link = ?, @Description = ?, @PicturePath = ?, @PublishedDate = ?, @Source = ?, @ThumbnailPath = ?, @IDArticle = @id OUTPUT; INSERT INTO @ids VALUES (%d, @id); ";
+    private static final String CREATE_ARTICLES_TAIL = "SELECT IDArticle FROM @ids ORDER BY Position";
+    // SQL Server accepts at most 2100 parameters per request, 7 per article
+    private static final int MAX_BATCH_SIZE = 300;
+
+    // text columns stay NVARCHAR until the MERGE, which converts them the
+    // same way the stored procedures convert their parameters
+    private static final String STAGING_TABLE = "#ArticleStaging";
+    private static final String CREATE_STAGING = "CREATE TABLE " + STAGING_TABLE
+            + " (Position INT NOT NULL, Title NVARCHAR(MAX), Link NVARCHAR(MAX), Description NVARCHAR(MAX),"
+            + " PicturePath NVARCHAR(MAX), PublishedDate NVARCHAR(50), Source NVARCHAR(100), ThumbnailPath NVARCHAR(MAX))";
+    private static final String DROP_STAGING = "DROP TABLE IF EXISTS " + STAGING_TABLE;
+    // a link staged twice keeps its last version, MERGE rejects duplicate matches
+    private static final String MERGE_STAGING = "MERGE %s WITH (HOLDLOCK) AS target"
+            + " USING (SELECT Title, Link, Description, PicturePath, PublishedDate, Source, ThumbnailPath FROM"
+            + " (SELECT *, ROW_NUMBER() OVER (PARTITION BY Link ORDER BY Position DESC) AS Version FROM " + STAGING_TABLE + ") AS staged"
+            + " WHERE Version = 1) AS source"
+            + " ON target.Link = source.Link"
+            + " WHEN MATCHED THEN UPDATE SET Title = source.Title, Description = source.Description,"
+            + " PicturePath = source.PicturePath, PublishedDate = source.PublishedDate,"
+            + " Source = COALESCE(source.Source, target.Source), ThumbnailPath = source.ThumbnailPath"
+            + " WHEN NOT MATCHED BY TARGET THEN INSERT (Title, Link, Description, PicturePath, PublishedDate, Source, ThumbnailPath)"
+            + " VALUES (source.Title, source.Link, source.Description, source.PicturePath, source.PublishedDate, source.Source, source.ThumbnailPath);";
 
     @Override
     public int createArticle(Article article) throws Exception {
@@ -42,6 +90,8 @@ public class SqlRepository implements Repository {
             stmt.setString(PICTURE_PATH, article.getPicturePath());
             stmt.setString(PUBLISHED_DATE,
                     article.getPublishedDate().format(Article.DATE_FORMATTER));
+            stmt.setString(SOURCE, article.getSource());
+            stmt.setString(THUMBNAIL_PATH, article.getThumbnailPath());
 
             stmt.registerOutParameter(ID_ARTICLE, Types.INTEGER);
 
@@ -52,22 +102,94 @@ public class SqlRepository implements Repository {
     }
 
     @Override
-    public void createArticles(List<Article> articles) throws Exception {
+    public List<Integer> createArticles(List<Article> articles) throws Exception {
+        List<Integer> ids = new ArrayList<>(articles.size());
+        if (articles.isEmpty()) {
+            return ids;
+        }
+        int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, DataSourceSingleton.getBatchSize()));
+
         DataSource dataSource = DataSourceSingleton.getInstance();
-        try (Connection con = dataSource.getConnection(); CallableStatement stmt = con.prepareCall(CREATE_ARTICLE)) {
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                for (int from = 0; from < articles.size(); from += batchSize) {
+                    List<Article> batch = articles.subList(from, Math.min(from + batchSize, articles.size()));
+                    try (PreparedStatement stmt = con.prepareStatement(createArticlesSql(batch.size()))) {
+
+                        int index = 1;
+                        for (Article article : batch) {
+                            stmt.setString(index++, article.getTitle());
+                            stmt.setString(index++, article.getLink());
+                            stmt.setString(index++, article.getDescription());
+                            stmt.setString(index++, article.getPicturePath());
+                            stmt.setString(index++,
+                                    article.getPublishedDate().format(Article.DATE_FORMATTER));
+                            stmt.setString(index++, article.getSource());
+                            stmt.setString(index++, article.getThumbnailPath());
+                        }
+
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                ids.add(rs.getInt(ID_ARTICLE));
+                            }
+                        }
+                    }
+                }
+                con.commit();
+            } catch (Exception e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        return ids;
 
-            for (Article article : articles) {
+    }
 
-                stmt.setString(TITLE, article.getTitle());
-                stmt.setString(LINK, article.getLink());
-                stmt.setString(DESCRIPTION, article.getDescription());
-                stmt.setString(PICTURE_PATH, article.getPicturePath());
-                stmt.setString(PUBLISHED_DATE,
-                        article.getPublishedDate().format(Article.DATE_FORMATTER));
+    private static String createArticlesSql(int count) {
+        StringBuilder sql = new StringBuilder(CREATE_ARTICLES_HEAD);
+        for (int i = 0; i < count; i++) {
+            sql.append(String.format(CREATE_ARTICLES_ROW, i));
+        }
+        return sql.append(CREATE_ARTICLES_TAIL).toString();
+    }
 
-                stmt.registerOutParameter(ID_ARTICLE, Types.INTEGER);
+    @Override
+    public int upsertArticles(Iterable<Article> articles) throws Exception {
+        DataSource dataSource = DataSourceSingleton.getInstance();
+        try (Connection con = dataSource.getConnection(); Statement stmt = con.createStatement()) {
+            con.setAutoCommit(false);
+            try {
+                // the staging table lives as long as the pooled session, so start clean
+                stmt.execute(DROP_STAGING);
+                stmt.execute(CREATE_STAGING);
+
+                ArticleBulkData data = new ArticleBulkData(articles);
+                try (SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(con.unwrap(SQLServerConnection.class))) {
+                    SQLServerBulkCopyOptions options = new SQLServerBulkCopyOptions();
+                    options.setBatchSize(DataSourceSingleton.getBulkBatchSize());
+                    options.setBulkCopyTimeout(0);
+                    options.setTableLock(true);
+                    bulkCopy.setBulkCopyOptions(options);
+                    bulkCopy.setDestinationTableName(STAGING_TABLE);
+                    for (String column : ArticleBulkData.COLUMNS) {
+                        bulkCopy.addColumnMapping(column, column);
+                    }
+                    bulkCopy.writeToServer(data);
+                }
 
-                stmt.executeUpdate();
+                int merged = data.getCount() == 0 ? 0
+                        : stmt.executeUpdate(String.format(MERGE_STAGING, DataSourceSingleton.getArticleTable()));
+                stmt.execute(DROP_STAGING);
+                con.commit();
+                return merged;
+            } catch (Exception e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
             }
         }
 
@@ -85,6 +207,8 @@ public class SqlRepository implements Repository {
             stmt.setString(PICTURE_PATH, article.getPicturePath());
             stmt.setString(PUBLISHED_DATE,
                     article.getPublishedDate().format(Article.DATE_FORMATTER));
+            stmt.setString(SOURCE, article.getSource());
+            stmt.setString(THUMBNAIL_PATH, article.getThumbnailPath());
 
             stmt.setInt(ID_ARTICLE, id);
 
@@ -118,18 +242,7 @@ public class SqlRepository implements Repository {
 
             try(ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(
-                            new Article(
-                                    rs.getInt(ID_ARTICLE),
-                                    rs.getString(TITLE),
-                                    rs.getString(LINK),
-                                    rs.getString(DESCRIPTION),
-                                    rs.getString(PICTURE_PATH),
-                                    LocalDateTime.parse(
-                                            rs.getString(PUBLISHED_DATE),
-                                            Article.DATE_FORMATTER))
-
-                    );
+                    return Optional.of(readArticle(rs));
                 }
             }
 
@@ -148,18 +261,7 @@ public class SqlRepository implements Repository {
 
             try(ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    articles.add(
-                            new Article(
-                                    rs.getInt(ID_ARTICLE), 
-                                    rs.getString(TITLE), 
-                                    rs.getString(LINK), 
-                                    rs.getString(DESCRIPTION), 
-                                    rs.getString(PICTURE_PATH), 
-                                    LocalDateTime.parse(
-                                            rs.getString(PUBLISHED_DATE), 
-                                            Article.DATE_FORMATTER))
-                    
-                    );
+                    articles.add(readArticle(rs));
                 }
             }
             
@@ -171,4 +273,130 @@ public class SqlRepository implements Repository {
 
     }
 
+    @Override
+    public List<String> selectLinks(String source) throws Exception {
+
+        List<String> links = new ArrayList<>();
+
+        DataSource dataSource = DataSourceSingleton.getInstance();
+        try (Connection con = dataSource.getConnection();
+                CallableStatement stmt = con.prepareCall(SELECT_ARTICLE_LINKS)) {
+
+            stmt.setString(1, source);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    links.add(rs.getString(LINK));
+                }
+            }
+        }
+        return links;
+
+    }
+
+    @Override
+    public List<Article> selectArticlesAfter(int id, int limit) throws Exception {
+
+        DataSource dataSource = DataSourceSingleton.getInstance();
+        try (Connection con = dataSource.getConnection();
+                CallableStatement stmt = con.prepareCall(SELECT_ARTICLES_AFTER)) {
+
+            stmt.setInt(ID_ARTICLE, id);
+            stmt.setInt(LIMIT, limit);
+
+            return readArticles(stmt);
+        }
+
+    }
+
+    @Override
+    public List<Article> selectArticlesPublishedAfter(LocalDateTime publishedDate, int id, int limit) throws Exception {
+
+        DataSource dataSource = DataSourceSingleton.getInstance();
+        try (Connection con = dataSource.getConnection();
+                CallableStatement stmt = con.prepareCall(SELECT_ARTICLES_PUBLISHED_AFTER)) {
+
+            if (publishedDate == null) {
+                stmt.setNull(PUBLISHED_DATE, Types.NVARCHAR);
+            } else {
+                stmt.setString(PUBLISHED_DATE, publishedDate.format(Article.DATE_FORMATTER));
+            }
+            stmt.setInt(ID_ARTICLE, id);
+            stmt.setInt(LIMIT, limit);
+
+            return readArticles(stmt);
+        }
+
+    }
+
+    @Override
+    public Stream<Article> streamArticles() throws Exception {
+
+        DataSource dataSource = DataSourceSingleton.getInstance();
+        Connection con = dataSource.getConnection();
+        try {
+            CallableStatement stmt = con.prepareCall(SELECT_ARTICLES, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.unwrap(SQLServerStatement.class).setResponseBuffering(ADAPTIVE_BUFFERING);
+            stmt.setFetchSize(DataSourceSingleton.getFetchSize());
+            ResultSet rs = stmt.executeQuery();
+
+            boolean[] exhausted = {false};
+            Spliterator<Article> rows = new Spliterators.AbstractSpliterator<Article>(
+                    Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Article> action) {
+                    try {
+                        if (!rs.next()) {
+                            exhausted[0] = true;
+                            return false;
+                        }
+                        action.accept(readArticle(rs));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Reading articles failed", e);
+                    }
+                }
+            };
+
+            return StreamSupport.stream(rows, false).onClose(() -> {
+                try (con; stmt; rs) {
+                    if (!exhausted[0]) {
+                        // otherwise closing reads the rest of the rows just to drop them
+                        stmt.cancel();
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Closing the article stream failed", e);
+                }
+            });
+        } catch (Exception e) {
+            con.close();
+            throw e;
+        }
+
+    }
+
+    private static List<Article> readArticles(CallableStatement stmt) throws Exception {
+        List<Article> articles = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                articles.add(readArticle(rs));
+            }
+        }
+        return articles;
+    }
+
+    private static Article readArticle(ResultSet rs) throws SQLException {
+        Article article = new Article(
+                rs.getInt(ID_ARTICLE),
+                rs.getString(TITLE),
+                rs.getString(LINK),
+                rs.getString(DESCRIPTION),
+                rs.getString(PICTURE_PATH),
+                LocalDateTime.parse(
+                        rs.getString(PUBLISHED_DATE),
+                        Article.DATE_FORMATTER));
+        article.setSource(rs.getString(SOURCE));
+        article.setThumbnailPath(rs.getString(THUMBNAIL_PATH));
+        return article;
+    }
+
 }
@@ -21,6 +21,8 @@ public final class Article {
     private String description;
     private String picturePath;
     private LocalDateTime publishedDate;
+    private String source;
+    private String thumbnailPath;
 
     public Article(int id, String title, String link, String description, String picturePath, LocalDateTime publishedDate) {
         this(title, link, description, picturePath, publishedDate);
@@ -86,6 +88,22 @@ public final class Article {
         this.publishedDate = publishedDate;
     }
 
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getThumbnailPath() {
+        return thumbnailPath;
+    }
+
+    public void setThumbnailPath(String thumbnailPath) {
+        this.thumbnailPath = thumbnailPath;
+    }
+
     @Override
     public String toString() {
         return id + " - " + title;
@@ -0,0 +1,114 @@
+package hr.algebra;
+
+import hr.algebra.dal.Repository;
+import hr.algebra.dal.RepositoryFactory;
+import hr.algebra.ingestion.FeedRegistry;
+import hr.algebra.ingestion.FeedScheduler;
+import hr.algebra.ingestion.FileLeaseStore;
+import hr.algebra.ingestion.IngestionEngine;
+import hr.algebra.parsers.rss.ImageFetcher;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless entry point, runs ingestion without the Swing client.
+ * <ul>
+ * <li>once (default): fetches every feed one time and exits, e.g. from cron</li>
+ * <li>continuous: polls the feeds until stopped, sharing them through
+ * leases with other daemons using the same LEASE_FILE</li>
+ * <li>replay: rebuilds the repository from the feed archive</li>
+ * </ul>
+ * On SIGTERM / SIGINT the daemon stops taking new work and waits up to
+ * FEED_TIMEOUT_SECONDS for running feeds, articles already parsed are
+ * always written.
+ * <p>
+ * Thumbnails need AWT imaging, so the daemon only creates them with
+ * DAEMON_THUMBNAILS = true. Otherwise its articles have no thumbnail
+ * and the client makes one the first time it shows the picture.
+ */
+public class IngestionDaemon {
+
+    private static final Logger LOGGER = Logger.getLogger(IngestionDaemon.class.getName());
+
+    private static final String ONCE = "once";
+    private static final String CONTINUOUS = "continuous";
+    private static final String REPLAY = "replay";
+
+    private static final CountDownLatch STOPPING = new CountDownLatch(1);
+
+    private static volatile boolean exiting;
+
+    private IngestionDaemon() {
+    }
+
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : ONCE;
+        if (!ONCE.equals(mode) && !CONTINUOUS.equals(mode) && !REPLAY.equals(mode)) {
+            System.err.println("Usage: IngestionDaemon [once|continuous|replay]");
+            System.exit(2);
+        }
+
+        if (FeedRegistry.isDaemonThumbnailsEnabled()) {
+            // thumbnails only draw into images, no display needed
+            System.setProperty("java.awt.headless", "true");
+        } else {
+            ImageFetcher.setThumbnails(false);
+        }
+
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> drain(main), "ingestion-shutdown"));
+
+        Repository repository = RepositoryFactory.getInstance();
+        try {
+            switch (mode) {
+                case CONTINUOUS:
+                    runContinuous(repository);
+                    break;
+                case REPLAY:
+                    LOGGER.log(Level.INFO, "Replayed {0} articles", IngestionEngine.replay(repository));
+                    break;
+                default:
+                    LOGGER.log(Level.INFO, "Ingested {0} articles", IngestionEngine.ingest(repository));
+            }
+        } catch (InterruptedException e) {
+            LOGGER.info("Ingestion stopped");
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Ingestion failed", e);
+            if (STOPPING.getCount() > 0) {
+                // exit runs the shutdown hook, which must not wait for this thread
+                exiting = true;
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void runContinuous(Repository repository) throws Exception {
+        try (FeedScheduler scheduler = new FeedScheduler(repository,
+                new FileLeaseStore(Paths.get(FeedRegistry.getLeaseFile())), null)) {
+            scheduler.start();
+            STOPPING.await();
+        }
+    }
+
+    private static void drain(Thread main) {
+        STOPPING.countDown();
+        if (exiting) {
+            return;
+        }
+        try {
+            // continuous mode wakes up and closes the scheduler, a single run
+            // gets the feed timeout to finish before it is interrupted
+            main.join(TimeUnit.SECONDS.toMillis(FeedRegistry.getFeedTimeoutSeconds()));
+            if (main.isAlive()) {
+                main.interrupt();
+                main.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
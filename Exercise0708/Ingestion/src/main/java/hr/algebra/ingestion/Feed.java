@@ -0,0 +1,26 @@
+package hr.algebra.ingestion;
+
+public final class Feed {
+
+    private final String name;
+    private final String url;
+
+    public Feed(String name, String url) {
+        this.name = name;
+        this.url = url;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public String toString() {
+        return name + " - " + url;
+    }
+
+}
@@ -0,0 +1,154 @@
+package hr.algebra.ingestion;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Raw feed bodies as fetched, one gzipped snapshot per fetch under
+ * archive/&lt;feed&gt;/&lt;UTC timestamp&gt;.xml.gz. Snapshots can be
+ * replayed through the parser without touching the network.
+ */
+public class FeedArchive {
+
+    private static final Path DIR = Paths.get("archive");
+    private static final String EXT = ".xml.gz";
+    private static final String PART = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // sortable, so file name order is fetch order
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter
+            .ofPattern("yyyyMMdd'T'HHmmss.SSS'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private FeedArchive() {
+    }
+
+    /**
+     * Starts a snapshot of a feed body: everything read through
+     * {@link Snapshot#getStream()} is also written to it. The snapshot is
+     * only kept if {@link Snapshot#commit()} is called before it is closed.
+     */
+    public static Snapshot record(Feed feed, InputStream is) throws IOException {
+        if (!FeedRegistry.isArchiveEnabled()) {
+            return new Snapshot(is, null, null);
+        }
+        Path dir = DIR.resolve(feed.getName());
+        Files.createDirectories(dir);
+        Path file = dir.resolve(TIMESTAMP.format(Instant.now()) + EXT);
+        Path part = dir.resolve(file.getFileName() + PART);
+        return new Snapshot(is, file, part);
+    }
+
+    /**
+     * @return the feed's snapshots, oldest first
+     */
+    public static List<Path> snapshots(Feed feed) throws IOException {
+        Path dir = DIR.resolve(feed.getName());
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(file -> file.getFileName().toString().endsWith(EXT))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    public static InputStream open(Path snapshot) throws IOException {
+        return new GZIPInputStream(new BufferedInputStream(Files.newInputStream(snapshot), BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    public static final class Snapshot implements Closeable {
+
+        private final InputStream is;
+        private final Path file;
+        private final Path part;
+        private final OutputStream os;
+        private boolean committed;
+
+        private Snapshot(InputStream is, Path file, Path part) throws IOException {
+            this.is = is;
+            this.file = file;
+            this.part = part;
+            this.os = part == null ? null : new GZIPOutputStream(Files.newOutputStream(part), BUFFER_SIZE);
+        }
+
+        /**
+         * The body to parse. Closing it does not close the body, the StAX
+         * reader closes its input before the snapshot is committed.
+         */
+        public InputStream getStream() {
+            return new FilterInputStream(is) {
+                @Override
+                public int read() throws IOException {
+                    int b = in.read();
+                    if (b >= 0 && os != null) {
+                        os.write(b);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = in.read(b, off, len);
+                    if (n > 0 && os != null) {
+                        os.write(b, off, n);
+                    }
+                    return n;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    // skipped bytes still belong in the snapshot
+                    return os == null ? in.skip(n) : Math.max(0, read(new byte[(int) Math.min(n, BUFFER_SIZE)]));
+                }
+
+                @Override
+                public boolean markSupported() {
+                    return false;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        /**
+         * Archives the rest of the body, the parser may stop before the end.
+         */
+        public void commit() throws IOException {
+            if (os != null) {
+                is.transferTo(os);
+                os.close();
+                Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (os != null && !committed) {
+                os.close();
+                Files.deleteIfExists(part);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,131 @@
+package hr.algebra.ingestion;
+
+import hr.algebra.parsers.rss.ParserMode;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Registered feeds and ingestion limits, read from config/feeds.properties.
+ * Every FEED.&lt;name&gt; key registers one feed.
+ */
+public class FeedRegistry {
+
+    private static final String PATH = "/config/feeds.properties";
+    private static final String FEED_PREFIX = "FEED.";
+    private static final String MAX_CONCURRENT_FEEDS = "MAX_CONCURRENT_FEEDS";
+    private static final String MAX_DOWNLOADS = "MAX_DOWNLOADS";
+    private static final String MAX_DOWNLOADS_PER_FEED = "MAX_DOWNLOADS_PER_FEED";
+    private static final String FEED_TIMEOUT_SECONDS = "FEED_TIMEOUT_SECONDS";
+    private static final String BATCH_SIZE = "BATCH_SIZE";
+    private static final String SINK_CAPACITY = "SINK_CAPACITY";
+    private static final String BATCH_LINGER_MILLIS = "BATCH_LINGER_MILLIS";
+    private static final String IMAGE_TIMEOUT_SECONDS = "IMAGE_TIMEOUT_SECONDS";
+    private static final String PARSER_MODE = "PARSER_MODE";
+    private static final String POLL_MIN_SECONDS = "POLL_MIN_SECONDS";
+    private static final String POLL_MAX_SECONDS = "POLL_MAX_SECONDS";
+    private static final String POLL_INITIAL_SECONDS = "POLL_INITIAL_SECONDS";
+    private static final String ARCHIVE = "ARCHIVE";
+    private static final String LEASE_SECONDS = "LEASE_SECONDS";
+    private static final String LEASE_FILE = "LEASE_FILE";
+    private static final String DAEMON_THUMBNAILS = "DAEMON_THUMBNAILS";
+
+    private static final Properties PROPERTIES = new Properties();
+
+    private static final List<Feed> FEEDS = new ArrayList<>();
+
+    static {
+        try (InputStream is = FeedRegistry.class.getResourceAsStream(PATH)) {
+            PROPERTIES.load(is);
+            PROPERTIES.stringPropertyNames().stream()
+                    .filter(key -> key.startsWith(FEED_PREFIX))
+                    .sorted()
+                    .forEach(key -> FEEDS.add(new Feed(
+                            key.substring(FEED_PREFIX.length()),
+                            PROPERTIES.getProperty(key).trim())));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private FeedRegistry() {
+    }
+
+    public static List<Feed> getFeeds() {
+        return Collections.unmodifiableList(FEEDS);
+    }
+
+    public static int getMaxConcurrentFeeds() {
+        return getInt(MAX_CONCURRENT_FEEDS, 8);
+    }
+
+    public static int getMaxDownloads() {
+        return getInt(MAX_DOWNLOADS, 32);
+    }
+
+    public static int getMaxDownloadsPerFeed() {
+        return getInt(MAX_DOWNLOADS_PER_FEED, 4);
+    }
+
+    public static int getFeedTimeoutSeconds() {
+        return getInt(FEED_TIMEOUT_SECONDS, 120);
+    }
+
+    public static int getBatchSize() {
+        return getInt(BATCH_SIZE, 50);
+    }
+
+    public static int getSinkCapacity() {
+        return getInt(SINK_CAPACITY, 200);
+    }
+
+    public static int getBatchLingerMillis() {
+        return getInt(BATCH_LINGER_MILLIS, 200);
+    }
+
+    public static int getImageTimeoutSeconds() {
+        return getInt(IMAGE_TIMEOUT_SECONDS, 60);
+    }
+
+    public static int getPollMinSeconds() {
+        return getInt(POLL_MIN_SECONDS, 300);
+    }
+
+    public static int getPollMaxSeconds() {
+        return getInt(POLL_MAX_SECONDS, 6 * 3600);
+    }
+
+    public static int getPollInitialSeconds() {
+        return getInt(POLL_INITIAL_SECONDS, 900);
+    }
+
+    public static int getLeaseSeconds() {
+        return getInt(LEASE_SECONDS, 60);
+    }
+
+    public static String getLeaseFile() {
+        return PROPERTIES.getProperty(LEASE_FILE, "leases/leases.properties").trim();
+    }
+
+    public static boolean isArchiveEnabled() {
+        String value = PROPERTIES.getProperty(ARCHIVE);
+        return value == null || Boolean.parseBoolean(value.trim());
+    }
+
+    public static boolean isDaemonThumbnailsEnabled() {
+        return Boolean.parseBoolean(PROPERTIES.getProperty(DAEMON_THUMBNAILS, "false").trim());
+    }
+
+    public static ParserMode getParserMode() {
+        String value = PROPERTIES.getProperty(PARSER_MODE);
+        return value == null ? ParserMode.CURSOR : ParserMode.valueOf(value.trim());
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        String value = PROPERTIES.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+}
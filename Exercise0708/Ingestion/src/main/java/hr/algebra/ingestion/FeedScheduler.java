@@ -0,0 +1,313 @@
+package hr.algebra.ingestion;
+
+import hr.algebra.dal.Repository;
+import hr.algebra.model.Article;
+import hr.algebra.parsers.rss.ArticleParser;
+import hr.algebra.parsers.rss.ArticleSink;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Polls every registered feed in the background, each on its own interval.
+ * A poll that brings new items halves the interval, a poll without new
+ * items (or a failed one) stretches it, always within POLL_MIN_SECONDS and
+ * POLL_MAX_SECONDS and never below the feed's own ttl / sy:updatePeriod.
+ * First polls are staggered over the minimum interval and every delay gets
+ * some jitter, so feeds do not fire together.
+ * <p>
+ * With a {@link LeaseStore}, several schedulers (in one or more processes)
+ * share the feeds: each one only polls feeds it holds a lease on, renews
+ * its leases every third of LEASE_SECONDS and takes no more than its fair
+ * share of the feeds, giving up the surplus when more workers join.
+ */
+public class FeedScheduler implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(FeedScheduler.class.getName());
+
+    private static final double SPEED_UP = 0.5;
+    private static final double SLOW_DOWN = 1.5;
+    private static final double JITTER = 0.1;
+
+    private final Repository repository;
+    private final Runnable onNewArticles;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("feed-scheduler").daemon().factory());
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("feed-poll-", 0).factory());
+    private final Semaphore permits = new Semaphore(FeedRegistry.getMaxConcurrentFeeds());
+
+    private final LeaseStore leases;
+    private final String worker = UUID.randomUUID().toString();
+    private final Duration leaseTtl = Duration.ofSeconds(FeedRegistry.getLeaseSeconds());
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private final Map<String, PollState> states = new ConcurrentHashMap<>();
+    private volatile int fairShare = Integer.MAX_VALUE;
+
+    private volatile boolean closed;
+
+    /**
+     * @param onNewArticles called after a poll stored new articles, may be null
+     */
+    public FeedScheduler(Repository repository, Runnable onNewArticles) {
+        this(repository, null, onNewArticles);
+    }
+
+    /**
+     * @param leases shared with the other workers, null to poll every feed
+     * @param onNewArticles called after a poll stored new articles, may be null
+     */
+    public FeedScheduler(Repository repository, LeaseStore leases, Runnable onNewArticles) {
+        this.repository = repository;
+        this.leases = leases;
+        this.onNewArticles = onNewArticles;
+    }
+
+    public void start() throws Exception {
+        KnownArticleIndex.load(repository);
+        List<Feed> feeds = FeedRegistry.getFeeds();
+        if (leases != null) {
+            heartbeat();
+            long period = leaseTtl.toMillis() / 3;
+            timer.scheduleAtFixedRate(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+        }
+        long spread = TimeUnit.SECONDS.toMillis(FeedRegistry.getPollMinSeconds()) / Math.max(1, feeds.size());
+        for (int i = 0; i < feeds.size(); i++) {
+            PollState state = new PollState(feeds.get(i));
+            states.put(state.feed.getName(), state);
+            schedule(state, Duration.ofMillis(i * spread));
+        }
+    }
+
+    /**
+     * Stops scheduling new polls and waits for running ones to finish.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(FeedRegistry.getFeedTimeoutSeconds(), TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } finally {
+            // heartbeats keep the leases of running polls until here
+            timer.shutdownNow();
+        }
+        if (leases != null) {
+            // hand the feeds over right away instead of letting the leases expire
+            for (String feed : held) {
+                release(states.get(feed));
+            }
+        }
+    }
+
+    private void schedule(PollState state, Duration delay) {
+        if (closed) {
+            return;
+        }
+        try {
+            timer.schedule(() -> {
+                if (closed) {
+                    return;
+                }
+                workers.execute(() -> poll(state));
+            }, delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed while the poll was running
+        }
+    }
+
+    private void poll(PollState state) {
+        if (leases != null) {
+            Duration wait;
+            // not released by the heartbeat between claiming and polling
+            synchronized (state) {
+                wait = claim(state);
+                state.polling = wait == null;
+            }
+            if (wait != null) {
+                schedule(state, wait);
+                return;
+            }
+        }
+        int written = 0;
+        try {
+            permits.acquire();
+            ScheduledFuture<?> timeout = null;
+            try {
+                // timed from here, not while waiting for the permit
+                Thread poller = Thread.currentThread();
+                timeout = timer.schedule(poller::interrupt, FeedRegistry.getFeedTimeoutSeconds(), TimeUnit.SECONDS);
+                written = pollOnce(state);
+            } finally {
+                if (timeout != null) {
+                    timeout.cancel(false);
+                    // a timeout that fired as the poll returned must not hit what follows
+                    Thread.interrupted();
+                }
+                permits.release();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Polling failed: " + state.feed, e);
+        }
+        state.adapt(written);
+        LOGGER.log(Level.FINE, "{0}: {1} new, next poll in {2}",
+                new Object[]{state.feed, written, state.interval});
+        if (written > 0 && onNewArticles != null) {
+            onNewArticles.run();
+        }
+        Duration delay = jitter(state.interval);
+        state.nextPoll = Instant.now().plus(delay);
+        state.polling = false;
+        schedule(state, delay);
+    }
+
+    /**
+     * @return null if this worker holds the feed's lease and may poll it
+     * now, otherwise how long to wait before trying again
+     */
+    private Duration claim(PollState state) {
+        String feed = state.feed.getName();
+        if (held.contains(feed)) {
+            return null;
+        }
+        Duration retry = jitter(leaseTtl);
+        if (held.size() >= fairShare) {
+            return retry;
+        }
+        try {
+            Instant notBefore = leases.tryAcquire(worker, feed, leaseTtl);
+            if (notBefore == null) {
+                return retry;
+            }
+            // the previous holder stored items this worker has not seen,
+            // the table has no unique link to catch them
+            KnownArticleIndex.loadSource(repository, feed);
+            held.add(feed);
+            LOGGER.log(Level.FINE, "{0} leased {1}", new Object[]{worker, feed});
+            Duration wait = Duration.between(Instant.now(), notBefore);
+            return wait.isNegative() ? null : wait;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Cannot lease " + state.feed, e);
+            return retry;
+        }
+    }
+
+    private void release(PollState state) {
+        String feed = state.feed.getName();
+        held.remove(feed);
+        try {
+            leases.release(worker, feed, state.nextPoll);
+            LOGGER.log(Level.FINE, "{0} released {1}", new Object[]{worker, feed});
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Cannot release " + state.feed, e);
+        }
+    }
+
+    private void heartbeat() {
+        try {
+            Set<String> renewing = Set.copyOf(held);
+            Set<String> kept = leases.heartbeat(worker, renewing, leaseTtl);
+            // leases taken while renewing are not in either set and stay
+            held.removeIf(feed -> renewing.contains(feed) && !kept.contains(feed));
+            int workerCount = Math.max(1, leases.countWorkers());
+            int feedCount = FeedRegistry.getFeeds().size();
+            fairShare = (feedCount + workerCount - 1) / workerCount;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Lease heartbeat failed", e);
+            // the leases may have expired and been taken, claim asks the
+            // store again before the next poll of each feed
+            held.clear();
+            return;
+        }
+        // hand the surplus to the workers that joined, the next holder waits
+        // until the poll this worker had scheduled
+        int surplus = held.size() - fairShare;
+        for (String feed : held) {
+            if (surplus <= 0) {
+                break;
+            }
+            PollState state = states.get(feed);
+            synchronized (state) {
+                if (!state.polling) {
+                    release(state);
+                    surplus--;
+                }
+            }
+        }
+    }
+
+    private int pollOnce(PollState state) throws Exception {
+        RepositorySink sink = new RepositorySink(repository);
+        try {
+            ArticleParser.parse(state.feed, new ArticleSink() {
+                @Override
+                public void accept(Article article, CompletableFuture<Void> image) throws InterruptedException {
+                    sink.accept(article, image);
+                }
+
+                @Override
+                public void acceptUpdateInterval(Duration interval) {
+                    state.hint = interval;
+                }
+
+                @Override
+                public void whenWritten(Runnable action) throws InterruptedException {
+                    sink.whenWritten(action);
+                }
+            });
+        } finally {
+            // a timed out poll is interrupted, the sink still has to drain
+            boolean interrupted = Thread.interrupted();
+            sink.close();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return sink.getWritten();
+    }
+
+    private static Duration jitter(Duration interval) {
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+        return Duration.ofMillis((long) (interval.toMillis() * factor));
+    }
+
+    private static final class PollState {
+
+        private final Feed feed;
+        private Duration interval = Duration.ofSeconds(FeedRegistry.getPollInitialSeconds());
+        private volatile Duration hint = Duration.ZERO;
+        private volatile Instant nextPoll = Instant.now();
+        private volatile boolean polling;
+
+        private PollState(Feed feed) {
+            this.feed = feed;
+        }
+
+        private void adapt(int newArticles) {
+            double factor = newArticles > 0 ? SPEED_UP : SLOW_DOWN;
+            long seconds = (long) (interval.toSeconds() * factor);
+            long min = Math.max(FeedRegistry.getPollMinSeconds(), hint.toSeconds());
+            long max = Math.max(FeedRegistry.getPollMaxSeconds(), min);
+            interval = Duration.ofSeconds(Math.min(max, Math.max(min, seconds)));
+        }
+
+    }
+
+}
@@ -0,0 +1,155 @@
+package hr.algebra.ingestion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Lease store in a properties file, for workers running on one machine.
+ * Every operation reads, changes and rewrites the file while holding an
+ * OS file lock, so workers in different processes see each other.
+ */
+public class FileLeaseStore implements LeaseStore {
+
+    private static final String LEASE = "LEASE.";
+    private static final String WORKER = "WORKER.";
+    private static final String NOBODY = "-";
+
+    private final Path file;
+    private final Path lockFile;
+
+    public FileLeaseStore(Path file) {
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+    }
+
+    @Override
+    public Set<String> heartbeat(String worker, Set<String> feeds, Duration ttl) throws IOException {
+        return update(properties -> {
+            long now = System.currentTimeMillis();
+            long expires = now + ttl.toMillis();
+            properties.setProperty(WORKER + worker, String.valueOf(expires));
+            properties.stringPropertyNames().stream()
+                    .filter(key -> key.startsWith(WORKER))
+                    .filter(key -> Long.parseLong(properties.getProperty(key)) < now)
+                    .forEach(properties::remove);
+
+            Set<String> held = new HashSet<>();
+            for (String feed : feeds) {
+                Lease lease = Lease.read(properties, feed);
+                if (lease.isHeldBy(worker, now)) {
+                    new Lease(worker, expires, lease.notBefore).write(properties, feed);
+                    held.add(feed);
+                }
+            }
+            return held;
+        });
+    }
+
+    @Override
+    public Instant tryAcquire(String worker, String feed, Duration ttl) throws IOException {
+        return update(properties -> {
+            long now = System.currentTimeMillis();
+            Lease lease = Lease.read(properties, feed);
+            if (!lease.isFree(now) && !lease.isHeldBy(worker, now)) {
+                return null;
+            }
+            new Lease(worker, now + ttl.toMillis(), lease.notBefore).write(properties, feed);
+            return Instant.ofEpochMilli(lease.notBefore);
+        });
+    }
+
+    @Override
+    public void release(String worker, String feed, Instant nextPoll) throws IOException {
+        update(properties -> {
+            // an expired lease nobody took over is still this worker's to hand over
+            if (Lease.read(properties, feed).owner.equals(worker)) {
+                new Lease(NOBODY, 0, nextPoll.toEpochMilli()).write(properties, feed);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public int countWorkers() throws IOException {
+        return update(properties -> {
+            long now = System.currentTimeMillis();
+            return (int) properties.stringPropertyNames().stream()
+                    .filter(key -> key.startsWith(WORKER))
+                    .filter(key -> Long.parseLong(properties.getProperty(key)) >= now)
+                    .count();
+        });
+    }
+
+    // synchronized as well, a JVM cannot hold two locks on the same file
+    private synchronized <T> T update(Function<Properties, T> change) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = channel.lock()) {
+            Properties properties = new Properties();
+            if (Files.exists(file)) {
+                try (InputStream is = Files.newInputStream(file)) {
+                    properties.load(is);
+                }
+            }
+            Properties before = (Properties) properties.clone();
+            T result = change.apply(properties);
+            if (!properties.equals(before)) {
+                Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "leases", ".tmp");
+                try (OutputStream os = Files.newOutputStream(tmp)) {
+                    properties.store(os, null);
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return result;
+        }
+    }
+
+    private static final class Lease {
+
+        private final String owner;
+        private final long expires;
+        private final long notBefore;
+
+        private Lease(String owner, long expires, long notBefore) {
+            this.owner = owner;
+            this.expires = expires;
+            this.notBefore = notBefore;
+        }
+
+        private static Lease read(Properties properties, String feed) {
+            String value = properties.getProperty(LEASE + feed);
+            if (value == null) {
+                return new Lease(NOBODY, 0, 0);
+            }
+            String[] parts = value.split(" ");
+            return new Lease(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        }
+
+        private void write(Properties properties, String feed) {
+            properties.setProperty(LEASE + feed, owner + " " + expires + " " + notBefore);
+        }
+
+        private boolean isFree(long now) {
+            return NOBODY.equals(owner) || expires < now;
+        }
+
+        private boolean isHeldBy(String worker, long now) {
+            return owner.equals(worker) && expires >= now;
+        }
+
+    }
+
+}
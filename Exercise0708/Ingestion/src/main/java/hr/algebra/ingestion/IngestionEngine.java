@@ -0,0 +1,163 @@
+package hr.algebra.ingestion;
+
+import hr.algebra.dal.Repository;
+import hr.algebra.parsers.rss.ArticleParser;
+import hr.algebra.parsers.rss.ArticleSink;
+import hr.algebra.utilities.HttpUtils;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches and parses all registered feeds in parallel. A feed that fails or
+ * does not finish within FEED_TIMEOUT_SECONDS of its own start is logged
+ * and skipped, the articles of all other feeds are still stored. Feeds
+ * waiting for a free slot are not on the clock yet.
+ */
+public class IngestionEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(IngestionEngine.class.getName());
+
+    private static final ScheduledExecutorService TIMEOUTS = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("feed-timeout").daemon().factory());
+
+    private IngestionEngine() {
+    }
+
+    /**
+     * Streams all registered feeds straight into the repository.
+     *
+     * @return number of articles written
+     */
+    public static int ingest(Repository repository) throws Exception {
+        KnownArticleIndex.load(repository);
+        RepositorySink sink = new RepositorySink(repository);
+        try {
+            ingest(FeedRegistry.getFeeds(), sink);
+        } finally {
+            sink.close();
+        }
+        return sink.getWritten();
+    }
+
+    public static void ingest(List<Feed> feeds, ArticleSink sink) throws InterruptedException {
+        run(feeds, FeedRegistry.getFeedTimeoutSeconds(), feed -> () -> {
+            if (!ArticleParser.parse(feed, sink)) {
+                LOGGER.log(Level.FINE, "Feed unchanged: {0}", feed);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Rebuilds the repository from the archived snapshots of all registered
+     * feeds, without fetching them.
+     *
+     * @return number of articles written
+     */
+    public static int replay(Repository repository) throws Exception {
+        KnownArticleIndex.load(repository);
+        RepositorySink sink = new RepositorySink(repository);
+        try {
+            replay(FeedRegistry.getFeeds(), sink);
+        } finally {
+            sink.close();
+        }
+        return sink.getWritten();
+    }
+
+    /**
+     * Parses every archived snapshot of the feeds, oldest first per feed.
+     * Only local I/O is involved, so there is no feed timeout.
+     */
+    public static void replay(List<Feed> feeds, ArticleSink sink) throws InterruptedException {
+        AtomicInteger snapshots = new AtomicInteger();
+        long start = System.nanoTime();
+        run(feeds, Long.MAX_VALUE, feed -> () -> {
+            for (Path snapshot : FeedArchive.snapshots(feed)) {
+                try (InputStream is = FeedArchive.open(snapshot)) {
+                    ArticleParser.parse(feed, is, sink);
+                }
+                snapshots.incrementAndGet();
+            }
+            return null;
+        });
+        LOGGER.log(Level.INFO, "Replayed {0} snapshots in {1} ms",
+                new Object[]{snapshots.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+    }
+
+    private static void run(List<Feed> feeds, long timeoutSeconds, Function<Feed, Callable<Void>> task) throws InterruptedException {
+        long wireBytes = HttpUtils.getWireBytes();
+        long bodyBytes = HttpUtils.getBodyBytes();
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                FeedRegistry.getMaxConcurrentFeeds(),
+                Thread.ofVirtual().name("feed-", 0).factory());
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (Feed feed : feeds) {
+                FutureTask<Void> result = new TimedTask<>(task.apply(feed), timeoutSeconds);
+                executor.execute(result);
+                results.add(result);
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (CancellationException e) {
+                    LOGGER.log(Level.WARNING, "Feed timed out: {0}", feeds.get(i));
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Feed failed: " + feeds.get(i), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            LOGGER.log(Level.INFO, "Received {0} bytes, {1} bytes after decompression",
+                    new Object[]{HttpUtils.getWireBytes() - wireBytes, HttpUtils.getBodyBytes() - bodyBytes});
+        }
+    }
+
+    /**
+     * Cancels itself FEED_TIMEOUT_SECONDS after it starts running.
+     */
+    private static final class TimedTask<T> extends FutureTask<T> {
+
+        private final long timeoutSeconds;
+
+        private TimedTask(Callable<T> callable, long timeoutSeconds) {
+            super(callable);
+            this.timeoutSeconds = timeoutSeconds;
+        }
+
+        @Override
+        public void run() {
+            if (timeoutSeconds == Long.MAX_VALUE) {
+                super.run();
+                return;
+            }
+            ScheduledFuture<?> timeout = TIMEOUTS.schedule(() -> cancel(true), timeoutSeconds, TimeUnit.SECONDS);
+            try {
+                super.run();
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+package hr.algebra.ingestion;
+
+import hr.algebra.dal.Repository;
+import hr.algebra.model.Article;
+import hr.algebra.utilities.FingerprintSet;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Links of articles that are already stored, so feed items can be dropped
+ * before their image is downloaded or the database is called. Only a
+ * 64-bit fingerprint of each link is kept.
+ */
+public class KnownArticleIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(KnownArticleIndex.class.getName());
+
+    private static final int INITIAL_CAPACITY = 100_000;
+
+    private static final FingerprintSet LINKS = new FingerprintSet(INITIAL_CAPACITY);
+    private static boolean loaded;
+
+    private KnownArticleIndex() {
+    }
+
+    /**
+     * Reads all stored links once. Later calls do nothing.
+     */
+    public static synchronized void load(Repository repository) throws Exception {
+        if (loaded) {
+            return;
+        }
+        // only the fingerprints are kept, the articles are dropped as they are read
+        try (Stream<Article> articles = repository.streamArticles()) {
+            articles.map(article -> normalize(article.getLink()))
+                    .filter(Objects::nonNull)
+                    .forEach(LINKS::add);
+        }
+        loaded = true;
+        LOGGER.log(Level.INFO, "Known article index loaded with {0} links", LINKS.size());
+    }
+
+    /**
+     * Adds the stored links of one feed, which another worker may have
+     * written since this index was loaded.
+     */
+    public static void loadSource(Repository repository, String source) throws Exception {
+        List<String> links = repository.selectLinks(source);
+        synchronized (KnownArticleIndex.class) {
+            links.stream()
+                    .map(KnownArticleIndex::normalize)
+                    .filter(Objects::nonNull)
+                    .forEach(LINKS::add);
+        }
+    }
+
+    /**
+     * Marks the link as known.
+     *
+     * @return false if the link was known already
+     */
+    public static synchronized boolean register(String link) {
+        String key = normalize(link);
+        return key == null || LINKS.add(key);
+    }
+
+    /**
+     * Forgets a registered link whose article could not be stored.
+     */
+    public static synchronized void unregister(String link) {
+        String key = normalize(link);
+        if (key != null) {
+            LINKS.remove(key);
+        }
+    }
+
+    private static String normalize(String link) {
+        if (link == null || link.isBlank()) {
+            return null;
+        }
+        String trimmed = link.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+                return trimmed;
+            }
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String query = uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery();
+            return uri.getScheme().toLowerCase(Locale.ROOT) + "://"
+                    + uri.getRawAuthority().toLowerCase(Locale.ROOT) + path + query;
+        } catch (Exception e) {
+            return trimmed;
+        }
+    }
+
+}
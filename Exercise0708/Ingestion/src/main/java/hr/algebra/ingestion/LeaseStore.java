@@ -0,0 +1,34 @@
+package hr.algebra.ingestion;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Feed leases shared by several ingestion workers. A worker only polls the
+ * feeds it holds a lease on; a lease that is not renewed before it expires
+ * is free for any other worker.
+ */
+public interface LeaseStore {
+
+    /**
+     * Marks the worker alive for another ttl and renews the given leases.
+     *
+     * @return the leases the worker still holds
+     */
+    Set<String> heartbeat(String worker, Set<String> feeds, Duration ttl) throws Exception;
+
+    /**
+     * @return when the feed may be polled next, or null if another worker
+     * holds it
+     */
+    Instant tryAcquire(String worker, String feed, Duration ttl) throws Exception;
+
+    /**
+     * Gives the lease up, the next holder waits until nextPoll.
+     */
+    void release(String worker, String feed, Instant nextPoll) throws Exception;
+
+    int countWorkers() throws Exception;
+
+}
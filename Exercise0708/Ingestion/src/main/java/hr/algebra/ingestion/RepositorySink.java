@@ -0,0 +1,164 @@
+package hr.algebra.ingestion;
+
+import hr.algebra.dal.Repository;
+import hr.algebra.model.Article;
+import hr.algebra.parsers.rss.ArticleSink;
+import hr.algebra.parsers.rss.ImageFetcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes streamed articles to the repository in batches on a background
+ * thread. The queue between parsers and the writer is bounded, so parsers
+ * block in {@link #accept} while the database is behind. A batch is
+ * written once it has BATCH_SIZE articles, or when no article has arrived
+ * for BATCH_LINGER_MILLIS. An article waits at most IMAGE_TIMEOUT_SECONDS
+ * from being accepted for its image, then it is written without one.
+ */
+public class RepositorySink implements ArticleSink, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(RepositorySink.class.getName());
+
+    private static final Pending END = new Pending(null, null, 0, null);
+
+    private final Repository repository;
+    private final int batchSize;
+    private final long imageTimeoutNanos = TimeUnit.SECONDS.toNanos(FeedRegistry.getImageTimeoutSeconds());
+    private final long lingerMillis = FeedRegistry.getBatchLingerMillis();
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+
+    private volatile Exception failure;
+    private int written;
+
+    public RepositorySink(Repository repository) {
+        this(repository, FeedRegistry.getBatchSize(), FeedRegistry.getSinkCapacity());
+    }
+
+    public RepositorySink(Repository repository, int batchSize, int capacity) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = Thread.ofVirtual().name("repository-sink").start(this::drain);
+    }
+
+    @Override
+    public void accept(Article article, CompletableFuture<Void> image) throws InterruptedException {
+        if (failure != null) {
+            throw new IllegalStateException("Repository write failed", failure);
+        }
+        queue.put(new Pending(article, image, System.nanoTime() + imageTimeoutNanos, null));
+    }
+
+    @Override
+    public void whenWritten(Runnable action) throws InterruptedException {
+        queue.put(new Pending(null, null, 0, action));
+    }
+
+    /**
+     * Waits until every accepted article has been written.
+     */
+    @Override
+    public void close() throws Exception {
+        queue.put(END);
+        writer.join();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public int getWritten() {
+        return written;
+    }
+
+    private void drain() {
+        List<Article> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Pending pending = batch.isEmpty() ? queue.take() : queue.poll(lingerMillis, TimeUnit.MILLISECONDS);
+                if (pending == null) {
+                    // the parser went quiet, e.g. waiting on the network
+                    flush(batch);
+                    continue;
+                }
+                if (pending == END) {
+                    break;
+                }
+                if (pending.written != null) {
+                    flush(batch);
+                    if (failure == null) {
+                        pending.written.run();
+                    }
+                    continue;
+                }
+                if (failure != null) {
+                    KnownArticleIndex.unregister(pending.article.getLink());
+                    ImageFetcher.discard(pending.article, pending.image);
+                    continue;
+                }
+                batch.add(awaitImage(pending));
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+            }
+            if (failure == null) {
+                flush(batch);
+            }
+        } catch (InterruptedException e) {
+            failure = e;
+        }
+    }
+
+    private Article awaitImage(Pending pending) throws InterruptedException {
+        try {
+            pending.image.get(Math.max(0, pending.deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Image download failed", e.getCause());
+        } catch (TimeoutException e) {
+            LOGGER.log(Level.WARNING, "Image of {0} timed out, storing it without one", pending.article.getLink());
+            return withoutPicture(pending);
+        }
+        return pending.article;
+    }
+
+    // the download still sets the picture of the original article, so a
+    // copy is written and the late asset reference is given back
+    private static Article withoutPicture(Pending pending) {
+        Article article = pending.article;
+        ImageFetcher.discard(article, pending.image);
+        Article copy = new Article(article.getTitle(), article.getLink(), article.getDescription(),
+                null, article.getPublishedDate());
+        copy.setSource(article.getSource());
+        return copy;
+    }
+
+    private void flush(List<Article> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            repository.createArticles(batch);
+            written += batch.size();
+        } catch (Exception e) {
+            // nothing of the batch was stored, its images were awaited already
+            batch.forEach(article -> {
+                KnownArticleIndex.unregister(article.getLink());
+                ImageFetcher.release(article);
+            });
+            failure = e;
+        }
+        batch.clear();
+    }
+
+    private record Pending(Article article, CompletableFuture<Void> image, long deadline, Runnable written) {
+    }
+
+}
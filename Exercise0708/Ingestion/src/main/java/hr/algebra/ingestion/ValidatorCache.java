@@ -0,0 +1,89 @@
+package hr.algebra.ingestion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent ETag / Last-Modified validators per feed URL, used to send
+ * conditional GET requests.
+ */
+public class ValidatorCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ValidatorCache.class.getName());
+
+    private static final Path PATH = Paths.get("cache", "validators.properties");
+    private static final String ETAG = ".ETAG";
+    private static final String LAST_MODIFIED = ".LAST_MODIFIED";
+
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private static final Properties PROPERTIES = new Properties();
+
+    static {
+        if (Files.exists(PATH)) {
+            try (InputStream is = Files.newInputStream(PATH)) {
+                PROPERTIES.load(is);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot load validator cache", e);
+            }
+        }
+    }
+
+    private ValidatorCache() {
+    }
+
+    public static synchronized void applyValidators(String url, HttpRequest.Builder request) {
+        String etag = PROPERTIES.getProperty(url + ETAG);
+        if (etag != null) {
+            request.header(HEADER_IF_NONE_MATCH, etag);
+        }
+        String lastModified = PROPERTIES.getProperty(url + LAST_MODIFIED);
+        if (lastModified != null) {
+            request.header(HEADER_IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+
+    public static synchronized void storeValidators(String url, HttpResponse<?> response) {
+        String etag = response.headers().firstValue(HEADER_ETAG).orElse(null);
+        String lastModified = response.headers().firstValue(HEADER_LAST_MODIFIED).orElse(null);
+        boolean changed = put(url + ETAG, etag);
+        changed |= put(url + LAST_MODIFIED, lastModified);
+        if (changed) {
+            save();
+        }
+    }
+
+    private static boolean put(String key, String value) {
+        Object previous = value == null
+                ? PROPERTIES.remove(key)
+                : PROPERTIES.setProperty(key, value);
+        return value == null ? previous != null : !value.equals(previous);
+    }
+
+    private static void save() {
+        try {
+            Files.createDirectories(PATH.getParent());
+            Path tmp = Files.createTempFile(PATH.getParent(), "validators", ".tmp");
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                PROPERTIES.store(os, null);
+            }
+            Files.move(tmp, PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot save validator cache", e);
+        }
+    }
+
+}
@@ -0,0 +1,334 @@
+package hr.algebra.parsers.rss;
+
+import hr.algebra.factory.HttpClientFactory;
+import hr.algebra.factory.ParserFactory;
+import hr.algebra.ingestion.Feed;
+import hr.algebra.ingestion.FeedArchive;
+import hr.algebra.ingestion.FeedRegistry;
+import hr.algebra.ingestion.KnownArticleIndex;
+import hr.algebra.ingestion.ValidatorCache;
+import hr.algebra.model.Article;
+import hr.algebra.utilities.HttpUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+public class ArticleParser {
+
+    private static final String ATTRIBUTE_URL = "url";
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private enum TagType {
+        ITEM("item"),
+        TITLE("title"),
+        LINK("link"),
+        DESCRIPTION("description"),
+        ENCLOSURE("enclosure"),
+        PUB_DATE("pubDate"),
+        TTL("ttl"),
+        UPDATE_PERIOD("updatePeriod"),
+        UPDATE_FREQUENCY("updateFrequency");
+
+        private static final Map<String, TagType> BY_NAME = new HashMap<>();
+
+        static {
+            for (TagType value : values()) {
+                BY_NAME.put(value.name, value);
+            }
+        }
+
+        private final String name;
+
+        private TagType(String name) {
+            this.name = name;
+        }
+
+        private static Optional<TagType> from(String name) {
+            return Optional.ofNullable(BY_NAME.get(name));
+        }
+
+        private static TagType lookup(String name) {
+            return BY_NAME.get(name);
+        }
+
+    }
+
+    /**
+     * Channel level update hints: RSS ttl (minutes) and the syndication
+     * module's updatePeriod / updateFrequency.
+     */
+    private static final class Channel {
+
+        private static final Map<String, Duration> PERIODS = Map.of(
+                "hourly", Duration.ofHours(1),
+                "daily", Duration.ofDays(1),
+                "weekly", Duration.ofDays(7),
+                "monthly", Duration.ofDays(30),
+                "yearly", Duration.ofDays(365));
+
+        private String ttl;
+        private String updatePeriod;
+        private String updateFrequency;
+
+        private void set(TagType tagType, String data) {
+            switch (tagType) {
+                case TTL:
+                    ttl = data.trim();
+                    break;
+                case UPDATE_PERIOD:
+                    updatePeriod = data.trim();
+                    break;
+                case UPDATE_FREQUENCY:
+                    updateFrequency = data.trim();
+                    break;
+            }
+        }
+
+        private void report(ArticleSink sink) {
+            Duration interval = null;
+            try {
+                if (ttl != null) {
+                    interval = Duration.ofMinutes(Long.parseLong(ttl));
+                }
+                if (updatePeriod != null || updateFrequency != null) {
+                    Duration period = PERIODS.getOrDefault(
+                            updatePeriod == null ? "daily" : updatePeriod, Duration.ofDays(1));
+                    long frequency = updateFrequency == null ? 1 : Math.max(1, Long.parseLong(updateFrequency));
+                    Duration sy = period.dividedBy(frequency);
+                    interval = interval == null || sy.compareTo(interval) < 0 ? sy : interval;
+                }
+            } catch (NumberFormatException e) {
+                return;
+            }
+            if (interval != null) {
+                sink.acceptUpdateInterval(interval);
+            }
+        }
+
+    }
+
+    /**
+     * Streams every completed item to the sink.
+     *
+     * @return false if the feed answered 304 Not Modified
+     */
+    public static boolean parse(Feed feed, ArticleSink sink) throws IOException, XMLStreamException, InterruptedException {
+
+        HttpRequest.Builder request = HttpClientFactory.newRequest(feed.getUrl());
+        ValidatorCache.applyValidators(feed.getUrl(), request);
+        HttpResponse<InputStream> response = HttpClientFactory.send(request.build());
+        if (response.statusCode() == HTTP_NOT_MODIFIED) {
+            response.body().close();
+            return false;
+        }
+
+        try (InputStream is = HttpUtils.openStream(response);
+                FeedArchive.Snapshot snapshot = FeedArchive.record(feed, is)) {
+            parse(feed, snapshot.getStream(), sink);
+            snapshot.commit();
+        }
+        // a 304 must not hide items that were parsed but never stored
+        sink.whenWritten(() -> ValidatorCache.storeValidators(feed.getUrl(), response));
+        return true;
+    }
+
+    /**
+     * Parses an already opened feed body with the configured PARSER_MODE.
+     */
+    public static void parse(Feed feed, InputStream is, ArticleSink sink) throws XMLStreamException, InterruptedException {
+        parse(feed, is, sink, FeedRegistry.getParserMode());
+    }
+
+    static void parse(Feed feed, InputStream is, ArticleSink sink, ParserMode mode) throws XMLStreamException, InterruptedException {
+        Semaphore feedPermits = new Semaphore(FeedRegistry.getMaxDownloadsPerFeed());
+        if (mode == ParserMode.EVENT) {
+            parseEvents(feed, is, sink, feedPermits);
+        } else {
+            parseCursor(feed, is, sink, feedPermits);
+        }
+    }
+
+    private static void parseEvents(Feed feed, InputStream is, ArticleSink sink, Semaphore feedPermits) throws XMLStreamException, InterruptedException {
+        XMLEventReader reader = ParserFactory.createStaxParser(is);
+        try {
+            // text around entities and CDATA arrives in several events
+            StringBuilder text = new StringBuilder();
+            Optional<TagType> tagType = Optional.empty();
+            Article article = null;
+            String enclosure = null;
+            StartElement startElement = null;
+            Channel channel = new Channel();
+
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                switch (event.getEventType()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement = event.asStartElement();
+                        String qName = startElement.getName().getLocalPart();
+                        //System.out.println(qName);
+                        tagType = TagType.from(qName);
+                        text.setLength(0);
+                        if (tagType.isPresent() && tagType.get().equals(TagType.ITEM)) {
+                            article = new Article();
+                            article.setSource(feed.getName());
+                            enclosure = null;
+                        } else if (tagType.isPresent() && tagType.get().equals(TagType.ENCLOSURE) && article != null) {
+                            Attribute att = startElement.getAttributeByName(new QName(ATTRIBUTE_URL));
+                            if (att != null) {
+                                enclosure = att.getValue();
+                            }
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (tagType.isPresent()) {
+                            text.append(event.asCharacters().getData());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        Optional<TagType> endType = TagType.from(event.asEndElement().getName().getLocalPart());
+                        if (article == null) {
+                            if (endType.isPresent() && endType.equals(tagType) && !isBlank(text)) {
+                                channel.set(endType.get(), text.toString());
+                            }
+                        } else if (endType.isPresent() && endType.get().equals(TagType.ITEM)) {
+                            complete(article, enclosure, sink, feedPermits);
+                            article = null;
+                        } else if (endType.isPresent() && endType.equals(tagType) && !isBlank(text)) {
+                            setValue(article, endType.get(), text.toString());
+                        }
+                        tagType = Optional.empty();
+                        break;
+                }
+            }
+            channel.report(sink);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Cursor based variant of {@link #parseEvents}: no event objects, constant
+     * time tag lookup and element text collected straight from the reader's
+     * character buffer.
+     */
+    private static void parseCursor(Feed feed, InputStream is, ArticleSink sink, Semaphore feedPermits) throws XMLStreamException, InterruptedException {
+        XMLStreamReader reader = ParserFactory.createStaxStreamReader(is);
+        try {
+            StringBuilder text = new StringBuilder();
+            TagType tagType = null;
+            Article article = null;
+            String enclosure = null;
+            Channel channel = new Channel();
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        tagType = TagType.lookup(reader.getLocalName());
+                        text.setLength(0);
+                        if (tagType == TagType.ITEM) {
+                            article = new Article();
+                            article.setSource(feed.getName());
+                            enclosure = null;
+                        } else if (tagType == TagType.ENCLOSURE && article != null) {
+                            enclosure = reader.getAttributeValue(null, ATTRIBUTE_URL);
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (tagType != null) {
+                            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        TagType endType = TagType.lookup(reader.getLocalName());
+                        if (article == null) {
+                            if (endType != null && endType == tagType && !isBlank(text)) {
+                                channel.set(endType, text.toString());
+                            }
+                        } else if (endType == TagType.ITEM) {
+                            complete(article, enclosure, sink, feedPermits);
+                            article = null;
+                        } else if (endType != null && endType == tagType && !isBlank(text)) {
+                            setValue(article, endType, text.toString());
+                        }
+                        tagType = null;
+                        break;
+                }
+            }
+            channel.report(sink);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Drops items that are already stored, before their image is fetched.
+     * An item the sink does not take is forgotten again, so the next poll
+     * retries it.
+     */
+    private static void complete(Article article, String enclosure, ArticleSink sink, Semaphore feedPermits) throws InterruptedException {
+        if (!KnownArticleIndex.register(article.getLink())) {
+            return;
+        }
+        CompletableFuture<Void> image = enclosure == null
+                ? CompletableFuture.completedFuture(null)
+                : ImageFetcher.fetch(article, enclosure, feedPermits);
+        try {
+            sink.accept(article, image);
+        } catch (InterruptedException | RuntimeException e) {
+            KnownArticleIndex.unregister(article.getLink());
+            ImageFetcher.discard(article, image);
+            throw e;
+        }
+    }
+
+    private static void setValue(Article article, TagType tagType, String data) {
+        switch (tagType) {
+            case TITLE:
+                article.setTitle(data);
+                break;
+            case LINK:
+                article.setLink(data);
+                break;
+            case DESCRIPTION:
+                article.setDescription(data);
+                break;
+            case PUB_DATE:
+                article.setPublishedDate(
+                        LocalDateTime.parse(data, DateTimeFormatter.RFC_1123_DATE_TIME)
+                );
+                break;
+        }
+    }
+
+    private static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ArticleParser() {
+    }
+
+}
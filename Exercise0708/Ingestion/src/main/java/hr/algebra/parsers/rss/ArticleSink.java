@@ -0,0 +1,32 @@
+package hr.algebra.parsers.rss;
+
+import hr.algebra.model.Article;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Receives every completed item while the feed is still being parsed.
+ * The image future completes once the enclosure download has finished.
+ */
+@FunctionalInterface
+public interface ArticleSink {
+
+    void accept(Article article, CompletableFuture<Void> image) throws InterruptedException;
+
+    /**
+     * Called once per feed when the channel has a ttl or sy:updatePeriod
+     * hint, with the shortest interval the publisher asks to be polled at.
+     */
+    default void acceptUpdateInterval(Duration interval) {
+    }
+
+    /**
+     * Runs the action once every item accepted so far has been stored,
+     * and never if storing them fails. Sinks that store nothing run it
+     * right away.
+     */
+    default void whenWritten(Runnable action) throws InterruptedException {
+        action.run();
+    }
+
+}
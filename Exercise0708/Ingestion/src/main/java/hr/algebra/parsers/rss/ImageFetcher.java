@@ -0,0 +1,98 @@
+package hr.algebra.parsers.rss;
+
+import hr.algebra.ingestion.FeedRegistry;
+import hr.algebra.model.Article;
+import hr.algebra.utilities.AssetStore;
+import hr.algebra.utilities.Thumbnails;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Downloads enclosure images on virtual threads, outside of the parse loop.
+ * Downloads are capped both globally and per feed. Thumbnails of a
+ * downloaded image are created in a separate stage, after its permits
+ * have been released, and recorded on the article. With thumbnails turned
+ * off no imaging (AWT) class is loaded at all.
+ */
+public class ImageFetcher {
+
+    private static final Logger LOGGER = Logger.getLogger(ImageFetcher.class.getName());
+
+    private static final String EXT = ".jpg";
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Semaphore PERMITS = new Semaphore(FeedRegistry.getMaxDownloads());
+
+    private static volatile boolean thumbnails = true;
+
+    public static void setThumbnails(boolean enabled) {
+        thumbnails = enabled;
+    }
+
+    public static CompletableFuture<Void> fetch(Article article, String src, Semaphore feedPermits) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                feedPermits.acquire();
+                try {
+                    PERMITS.acquire();
+                    try {
+                        upload(article, src);
+                    } finally {
+                        PERMITS.release();
+                    }
+                } finally {
+                    feedPermits.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, EXECUTOR).thenCompose(ignored -> article.getPicturePath() == null || !thumbnails
+                ? CompletableFuture.completedFuture(null)
+                : Thumbnails.createAsync(article.getPicturePath()).thenAccept(article::setThumbnailPath));
+    }
+
+    /**
+     * Gives back the asset reference of an image whose article is not
+     * stored with it, once the download is done.
+     */
+    public static void discard(Article article, CompletableFuture<Void> image) {
+        image.whenComplete((ignored, e) -> release(article));
+    }
+
+    /**
+     * Gives back the asset reference of a downloaded image whose article
+     * is not stored with it.
+     */
+    public static void release(Article article) {
+        if (article.getPicturePath() != null) {
+            try {
+                AssetStore.release(article.getPicturePath());
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Cannot release an unused image", e);
+            }
+        }
+    }
+
+    private static void upload(Article article, String src) {
+        try {
+            String ext = src.substring(src.lastIndexOf("."));
+            if (ext.length() > 5) {
+                ext = EXT;
+            }
+            article.setPicturePath(AssetStore.storeFromUrl(src, ext));
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private ImageFetcher() {
+    }
+
+}
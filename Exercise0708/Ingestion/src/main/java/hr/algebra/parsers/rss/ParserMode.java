@@ -0,0 +1,9 @@
+package hr.algebra.parsers.rss;
+
+/**
+ * StAX API used by {@link ArticleParser}.
+ */
+public enum ParserMode {
+    EVENT,
+    CURSOR
+}
@@ -0,0 +1,103 @@
+package hr.algebra.parsers.rss;
+
+import hr.algebra.ingestion.Feed;
+import hr.algebra.ingestion.KnownArticleIndex;
+import hr.algebra.model.Article;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ArticleParserTest {
+
+    private static final Feed FEED = new Feed("test", "http://localhost/feed.xml");
+
+    // text split by entities, CDATA next to plain text, whitespace between
+    // elements and an item with fields missing
+    private static final String XML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <rss version="2.0"><channel>
+              <title>News &amp; more</title>
+              <ttl>45</ttl>
+              <item>
+                <title>Tom &amp; Jerry &#233;dition &lt;2&gt;</title>
+                <link>http://localhost/articles/1?a=1&amp;b=2</link>
+                <description><![CDATA[<p>First <b>bold</b></p>]]></description>
+                <pubDate>Mon, 01 Jan 2024 10:00:00 GMT</pubDate>
+              </item>
+              <item>
+                <title><![CDATA[Split ]]>&quot;quoted&quot;<![CDATA[ & raw]]></title>
+                <link>http://localhost/articles/2</link>
+                <description>Before <![CDATA[<i>inside</i>]]> after &#8364;</description>
+                <pubDate>Tue, 02 Jan 2024 11:30:00 GMT</pubDate>
+              </item>
+              <item>
+                <title>Only a title</title>
+                <link>http://localhost/articles/3</link>
+                <description>   </description>
+              </item>
+            </channel></rss>
+            """;
+
+    @Test
+    void cursorKeepsSplitTextWhole() throws Exception {
+        List<Article> articles = parse(ParserMode.CURSOR, new ArrayList<>());
+
+        assertEquals("Tom & Jerry édition <2>", articles.get(0).getTitle());
+        assertEquals("http://localhost/articles/1?a=1&b=2", articles.get(0).getLink());
+        assertEquals("<p>First <b>bold</b></p>", articles.get(0).getDescription());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 0), articles.get(0).getPublishedDate());
+        assertEquals("Split \"quoted\" & raw", articles.get(1).getTitle());
+        assertEquals("Before <i>inside</i> after €", articles.get(1).getDescription());
+    }
+
+    @Test
+    void eventAndCursorModesParseTheSame() throws Exception {
+        List<Duration> eventIntervals = new ArrayList<>();
+        List<Duration> cursorIntervals = new ArrayList<>();
+        List<Article> events = parse(ParserMode.EVENT, eventIntervals);
+        List<Article> cursor = parse(ParserMode.CURSOR, cursorIntervals);
+
+        assertEquals(3, events.size());
+        assertEquals(cursor.size(), events.size());
+        for (int i = 0; i < cursor.size(); i++) {
+            Article expected = cursor.get(i);
+            Article actual = events.get(i);
+            assertEquals(expected.getId(), actual.getId(), "id " + i);
+            assertEquals(expected.getTitle(), actual.getTitle(), "title " + i);
+            assertEquals(expected.getLink(), actual.getLink(), "link " + i);
+            assertEquals(expected.getDescription(), actual.getDescription(), "description " + i);
+            assertEquals(expected.getPicturePath(), actual.getPicturePath(), "picture path " + i);
+            assertEquals(expected.getPublishedDate(), actual.getPublishedDate(), "published date " + i);
+            assertEquals(expected.getSource(), actual.getSource(), "source " + i);
+            assertEquals(expected.getThumbnailPath(), actual.getThumbnailPath(), "thumbnail path " + i);
+        }
+        assertEquals(List.of(Duration.ofMinutes(45)), cursorIntervals);
+        assertEquals(cursorIntervals, eventIntervals);
+    }
+
+    private static List<Article> parse(ParserMode mode, List<Duration> intervals) throws Exception {
+        List<Article> articles = new ArrayList<>();
+        ArticleParser.parse(FEED, new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)), new ArticleSink() {
+            @Override
+            public void accept(Article article, CompletableFuture<Void> image) {
+                articles.add(article);
+                // the other mode sees the same links
+                KnownArticleIndex.unregister(article.getLink());
+            }
+
+            @Override
+            public void acceptUpdateInterval(Duration interval) {
+                intervals.add(interval);
+            }
+        }, mode);
+        return articles;
+    }
+
+}
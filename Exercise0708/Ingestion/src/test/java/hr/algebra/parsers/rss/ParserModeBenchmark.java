@@ -0,0 +1,76 @@
+package hr.algebra.parsers.rss;
+
+import com.sun.management.ThreadMXBean;
+import hr.algebra.ingestion.Feed;
+import hr.algebra.ingestion.KnownArticleIndex;
+import hr.algebra.model.Article;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses one generated feed with both parser modes and prints the time
+ * and the bytes allocated per pass. Items have no enclosure, so nothing is
+ * downloaded.
+ *
+ * mvn -pl Ingestion -am test-compile, then run this class with the
+ * Ingestion test classpath; the arguments are the item count and the
+ * number of passes (default 50000 and 5).
+ */
+class ParserModeBenchmark {
+
+    private static final Feed FEED = new Feed("benchmark", "http://localhost/feed.xml");
+
+    public static void main(String[] args) throws Exception {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        byte[] feed = generate(items);
+        System.out.printf("Feed of %d items, %.1f MB%n", items, feed.length / 1e6);
+
+        List<Article> events = parse(feed, ParserMode.EVENT);
+        List<Article> cursor = parse(feed, ParserMode.CURSOR);
+        if (events.size() != items || cursor.size() != items) {
+            throw new IllegalStateException("Parsed " + events.size() + " and " + cursor.size() + " items, expected " + items);
+        }
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int pass = 1; pass <= passes; pass++) {
+            for (ParserMode mode : ParserMode.values()) {
+                System.gc();
+                long allocated = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                parse(feed, mode);
+                long nanos = System.nanoTime() - start;
+                allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+                System.out.printf("pass %d %-6s %8.1f ms %8.1f MB allocated%n", pass, mode, nanos / 1e6, allocated / 1e6);
+            }
+        }
+    }
+
+    private static List<Article> parse(byte[] feed, ParserMode mode) throws Exception {
+        List<Article> articles = new ArrayList<>();
+        ArticleParser.parse(FEED, new ByteArrayInputStream(feed), (article, image) -> {
+            articles.add(article);
+            // keep the next pass from dropping the items as already known
+            KnownArticleIndex.unregister(article.getLink());
+        }, mode);
+        return articles;
+    }
+
+    private static byte[] generate(int items) {
+        StringBuilder xml = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<rss version=\"2.0\"><channel><title>Benchmark</title><ttl>60</ttl>\n");
+        for (int i = 0; i < items; i++) {
+            xml.append("<item><title>Title ").append(i).append(" &amp; more</title>")
+                    .append("<link>http://localhost/articles/").append(i).append("</link>")
+                    .append("<description><![CDATA[<p>Description ").append(i)
+                    .append(" lorem ipsum dolor sit amet, consectetur adipiscing elit.</p>]]></description>")
+                    .append("<pubDate>Mon, 01 Jan 2024 10:00:00 GMT</pubDate></item>\n");
+        }
+        return xml.append("</channel></rss>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
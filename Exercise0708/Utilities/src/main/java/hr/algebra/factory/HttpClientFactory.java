@@ -0,0 +1,71 @@
+package hr.algebra.factory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * One shared HttpClient for all feed and image fetches. It negotiates
+ * HTTP/2 where the server supports it and keeps HTTP/1.1 connections
+ * alive in its pool, so requests to the same host reuse connections.
+ * Bodies fail when no data arrives for TIMEOUT, like the read timeout of
+ * HttpURLConnection.
+ */
+public class HttpClientFactory {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final String USER_AGENT = "User-Agent";
+    private static final String MOZILLA = "Mozilla/5.0";
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String GZIP_DEFLATE = "gzip, deflate";
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(TIMEOUT)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("http-read-timeout").daemon().factory());
+
+    private static final HttpResponse.BodyHandler<InputStream> BODY_HANDLER = info -> HttpResponse.BodySubscribers.mapping(
+            HttpResponse.BodySubscribers.ofInputStream(),
+            body -> new IdleTimeoutInputStream(body, TIMEOUT, WATCHDOG));
+
+    public static HttpRequest.Builder newRequest(String path) {
+        return newRequest(path, TIMEOUT);
+    }
+
+    public static HttpRequest.Builder newRequest(String path, Duration timeout) {
+        return HttpRequest.newBuilder(URI.create(path))
+                .timeout(timeout)
+                .header(USER_AGENT, MOZILLA)
+                .header(ACCEPT_ENCODING, GZIP_DEFLATE)
+                .GET();
+    }
+
+    public static HttpResponse<InputStream> get(String path) throws IOException, InterruptedException {
+        return send(newRequest(path).build());
+    }
+
+    public static HttpResponse<InputStream> send(HttpRequest request) throws IOException, InterruptedException {
+        return CLIENT.send(request, BODY_HANDLER);
+    }
+
+    public static CompletableFuture<HttpResponse<InputStream>> sendAsync(HttpRequest request) {
+        return CLIENT.sendAsync(request, BODY_HANDLER);
+    }
+
+    private HttpClientFactory() {
+
+    }
+
+}
@@ -0,0 +1,112 @@
+package hr.algebra.factory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A response body that fails when a single read waits longer than the
+ * timeout. HttpRequest.timeout only covers the response headers, a server
+ * that stops sending the body would otherwise block the reader until it
+ * closes the connection. Time the caller spends between reads does not
+ * count.
+ */
+final class IdleTimeoutInputStream extends FilterInputStream {
+
+    private final long timeoutNanos;
+    private final ScheduledFuture<?> watchdog;
+
+    private volatile long readStarted;
+    private volatile boolean reading;
+    private volatile boolean timedOut;
+
+    IdleTimeoutInputStream(InputStream in, Duration timeout, ScheduledExecutorService scheduler) {
+        super(in);
+        this.timeoutNanos = timeout.toNanos();
+        long period = Math.max(1, timeout.toMillis() / 4);
+        this.watchdog = scheduler.scheduleAtFixedRate(this::check, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int read() throws IOException {
+        begin();
+        try {
+            return end(super.read());
+        } catch (IOException e) {
+            throw timedOut ? timeout() : e;
+        } finally {
+            reading = false;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        begin();
+        try {
+            return end(super.read(b, off, len));
+        } catch (IOException e) {
+            throw timedOut ? timeout() : e;
+        } finally {
+            reading = false;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        begin();
+        try {
+            return super.skip(n);
+        } catch (IOException e) {
+            throw timedOut ? timeout() : e;
+        } finally {
+            reading = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchdog.cancel(false);
+        super.close();
+    }
+
+    private void begin() throws IOException {
+        if (timedOut) {
+            throw timeout();
+        }
+        readStarted = System.nanoTime();
+        reading = true;
+    }
+
+    private int end(int result) throws IOException {
+        // closing the body makes the blocked read return end of stream
+        if (timedOut) {
+            throw timeout();
+        }
+        if (result < 0) {
+            watchdog.cancel(false);
+        }
+        return result;
+    }
+
+    private void check() {
+        if (reading && System.nanoTime() - readStarted > timeoutNanos) {
+            timedOut = true;
+            watchdog.cancel(false);
+            try {
+                in.close();
+            } catch (IOException e) {
+                // the reader gets the timeout anyway
+            }
+        }
+    }
+
+    private HttpTimeoutException timeout() {
+        return new HttpTimeoutException("No response data received for " + Duration.ofNanos(timeoutNanos).toSeconds() + " s");
+    }
+
+}
@@ -4,12 +4,19 @@ import java.io.InputStream;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 public class ParserFactory {
 
+    // configured once, only used to create readers afterwards
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
     public static XMLEventReader createStaxParser(InputStream is) throws XMLStreamException {
-        XMLInputFactory factory = XMLInputFactory.newInstance();
-        return factory.createXMLEventReader(is);
+        return FACTORY.createXMLEventReader(is);
+    }
+
+    public static XMLStreamReader createStaxStreamReader(InputStream is) throws XMLStreamException {
+        return FACTORY.createXMLStreamReader(is);
     }
 
     private ParserFactory() {
@@ -0,0 +1,442 @@
+package hr.algebra.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Content addressed image store. Files are named after the SHA-256 of their
+ * bytes, so identical images are kept once. Every stored reference is
+ * counted and a file is only deleted when its last reference is released.
+ * Downloaded files are also remembered by URL, so a URL is fetched once
+ * for as long as its file is kept.
+ * Counts and URLs are kept in properties files; a change only appends the
+ * changed entry to a log next to them, the files are rewritten once the
+ * log has grown as large as they are. Several processes can share the
+ * store: every change is made under an OS file lock, after reading what
+ * the other processes appended since.
+ */
+public class AssetStore {
+
+    private static final String DIR = "assets";
+    private static final Path LOCK = Paths.get(DIR, "assets.lock");
+    private static final Path REF_COUNTS = Paths.get(DIR, "refcounts.properties");
+    private static final Path REF_COUNTS_LOG = Paths.get(DIR, "refcounts.log");
+    private static final Path URLS = Paths.get(DIR, "urls.properties");
+    private static final Path URLS_LOG = Paths.get(DIR, "urls.log");
+    private static final String ALGORITHM = "SHA-256";
+    private static final String DOWNLOAD = ".download";
+
+    // the log is compacted once it has this many entries or more than the file
+    private static final int MIN_COMPACTION = 1000;
+
+    private static final LoggedProperties PROPERTIES = new LoggedProperties(REF_COUNTS, REF_COUNTS_LOG);
+    private static final LoggedProperties URL_PATHS = new LoggedProperties(URLS, URLS_LOG);
+    // in-flight downloads by URL, later callers wait for the first one
+    private static final Map<String, Download> DOWNLOADS = new HashMap<>();
+
+    private AssetStore() {
+    }
+
+    public static String storeFile(String source) throws IOException {
+        try (InputStream is = Files.newInputStream(Paths.get(source))) {
+            return store(is, extension(source));
+        }
+    }
+
+    /**
+     * Returns the asset already downloaded from this URL, or downloads it.
+     * Concurrent calls for the same URL share one download; every caller
+     * gets its own reference on the stored file.
+     */
+    public static String storeFromUrl(String src, String ext) throws IOException, InterruptedException {
+        String path = reuse(src);
+        if (path != null) {
+            return path;
+        }
+        Download download;
+        boolean waiting;
+        synchronized (DOWNLOADS) {
+            download = DOWNLOADS.get(src);
+            waiting = download != null;
+            if (waiting) {
+                download.waiters++;
+            } else {
+                download = new Download();
+                DOWNLOADS.put(src, download);
+            }
+        }
+        if (waiting) {
+            // the downloading call has counted this caller's reference
+            try {
+                return await(download.path);
+            } catch (InterruptedException e) {
+                download.path.thenAccept(AssetStore::releaseQuietly);
+                throw e;
+            }
+        }
+        try {
+            path = download(src, ext, download);
+            download.path.complete(path);
+            return path;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            synchronized (DOWNLOADS) {
+                DOWNLOADS.remove(src, download);
+            }
+            download.path.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static String reuse(String src) throws IOException {
+        return locked(() -> {
+            String path = URL_PATHS.getProperty(src);
+            if (path == null) {
+                return null;
+            }
+            if (!Files.exists(Paths.get(path))) {
+                URL_PATHS.remove(src);
+                return null;
+            }
+            changeCount(path, 1);
+            return path;
+        });
+    }
+
+    private static String await(CompletableFuture<String> download) throws IOException, InterruptedException {
+        try {
+            return download.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Downloads into a file named after the URL, so an interrupted download
+     * of the same URL resumes where it stopped, then stores it.
+     */
+    private static String download(String src, String ext, Download download) throws IOException, InterruptedException {
+        Files.createDirectories(Paths.get(DIR));
+        Path file = Paths.get(DIR, hash(src.getBytes(StandardCharsets.UTF_8)) + DOWNLOAD);
+        Downloader.download(src, file);
+        try {
+            MessageDigest digest = createDigest();
+            try (DigestInputStream dis = new DigestInputStream(Files.newInputStream(file), digest)) {
+                dis.transferTo(OutputStream.nullOutputStream());
+            }
+            return commit(file, HexFormat.of().formatHex(digest.digest()), ext, src, download);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Streams the bytes to a temp file while hashing them and returns the
+     * path of the stored asset, with one more reference counted on it.
+     */
+    public static String store(InputStream is, String ext) throws IOException {
+        Files.createDirectories(Paths.get(DIR));
+        Path tmp = Files.createTempFile(Paths.get(DIR), "asset", ".tmp");
+        try {
+            MessageDigest digest = createDigest();
+            try (DigestInputStream dis = new DigestInputStream(is, digest)) {
+                Files.copy(dis, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return commit(tmp, HexFormat.of().formatHex(digest.digest()), ext, null, null);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Moves the file into place and counts a reference for the caller and
+     * for every caller waiting on the same download. Callers that come
+     * later find the URL instead of the download.
+     */
+    private static String commit(Path file, String hash, String ext, String src, Download download) throws IOException {
+        return locked(() -> {
+            String dest = DIR + File.separator + hash + ext;
+            if (!Files.exists(Paths.get(dest))) {
+                Files.move(file, Paths.get(dest), StandardCopyOption.ATOMIC_MOVE);
+            }
+            int references = 1;
+            if (download != null) {
+                synchronized (DOWNLOADS) {
+                    DOWNLOADS.remove(src, download);
+                    references += download.waiters;
+                }
+            }
+            changeCount(dest, references);
+            if (src != null) {
+                URL_PATHS.setProperty(src, dest);
+            }
+            return dest;
+        });
+    }
+
+    public static String retain(String path) throws IOException {
+        return locked(() -> {
+            changeCount(path, 1);
+            return path;
+        });
+    }
+
+    /**
+     * Drops one reference and deletes the file and its thumbnails once
+     * nothing refers to it.
+     * Files stored before the asset store existed have no count and are
+     * deleted straight away.
+     */
+    public static void release(String path) throws IOException {
+        locked(() -> {
+            if (changeCount(path, -1) <= 0) {
+                Files.deleteIfExists(Paths.get(path));
+                Thumbnails.delete(path);
+            }
+            return null;
+        });
+    }
+
+    private static void releaseQuietly(String path) {
+        try {
+            release(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static int changeCount(String path, int delta) throws IOException {
+        String key = Paths.get(path).getFileName().toString();
+        int count = Integer.parseInt(PROPERTIES.getProperty(key, "0")) + delta;
+        if (count > 0) {
+            PROPERTIES.setProperty(key, String.valueOf(count));
+        } else {
+            PROPERTIES.remove(key);
+        }
+        return count;
+    }
+
+    // synchronized as well, a JVM cannot hold two locks on the same file
+    private static synchronized <T> T locked(Change<T> change) throws IOException {
+        Files.createDirectories(LOCK.getParent());
+        try (FileChannel channel = FileChannel.open(LOCK, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = channel.lock()) {
+            PROPERTIES.refresh();
+            URL_PATHS.refresh();
+            return change.apply();
+        }
+    }
+
+    private static String extension(String path) {
+        int dot = path.lastIndexOf(".");
+        return dot < 0 ? "" : path.substring(dot).toLowerCase();
+    }
+
+    private static String hash(byte[] bytes) {
+        return HexFormat.of().formatHex(createDigest().digest(bytes));
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Change<T> {
+
+        T apply() throws IOException;
+
+    }
+
+    private static final class Download {
+
+        private final CompletableFuture<String> path = new CompletableFuture<>();
+        // guarded by DOWNLOADS
+        private int waiters;
+
+    }
+
+    /**
+     * A properties file with a log of the entries changed since it was last
+     * written. The log holds properties lines, an empty value marks a
+     * removed entry, so loading the file and then the log gives the current
+     * entries. The log starts with a comment naming its generation, a new
+     * one is started whenever the file is rewritten; a process that finds
+     * another generation than it read last loads both files again,
+     * otherwise it only reads the lines appended since.
+     * Only used under the store's file lock.
+     */
+    private static final class LoggedProperties {
+
+        private final Properties properties = new Properties();
+        private final Path file;
+        private final Path log;
+        private String generation;
+        private long offset;
+        private int logged;
+
+        private LoggedProperties(Path file, Path log) {
+            this.file = file;
+            this.log = log;
+        }
+
+        private String getProperty(String key) {
+            return properties.getProperty(key);
+        }
+
+        private String getProperty(String key, String defaultValue) {
+            return properties.getProperty(key, defaultValue);
+        }
+
+        private void setProperty(String key, String value) throws IOException {
+            properties.setProperty(key, value);
+            append(key, value);
+        }
+
+        private void remove(String key) throws IOException {
+            if (properties.remove(key) != null) {
+                append(key, "");
+            }
+        }
+
+        private void refresh() throws IOException {
+            try (FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                String header = header(channel);
+                if (header.isEmpty()) {
+                    // first use, or a log from before generations: fold it into the file
+                    properties.clear();
+                    load();
+                    replay(Files.readAllBytes(log));
+                    compact();
+                    return;
+                }
+                if (!header.equals(generation)) {
+                    properties.clear();
+                    load();
+                    generation = header;
+                    offset = header.length() + 2;
+                    logged = 0;
+                }
+                long size = channel.size();
+                if (size <= offset) {
+                    return;
+                }
+                ByteBuffer appended = ByteBuffer.allocate((int) (size - offset));
+                while (appended.hasRemaining() && channel.read(appended, offset + appended.position()) >= 0) {
+                }
+                byte[] bytes = appended.array();
+                int end = replay(bytes);
+                offset += end;
+                if (end < bytes.length) {
+                    // a line cut short by a crash, appending after it would corrupt the next one
+                    channel.truncate(offset);
+                }
+            }
+        }
+
+        private void load() throws IOException {
+            if (Files.exists(file)) {
+                try (InputStream is = Files.newInputStream(file)) {
+                    properties.load(is);
+                }
+            }
+        }
+
+        private int replay(byte[] bytes) throws IOException {
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--;
+            }
+            Properties changes = new Properties();
+            changes.load(new ByteArrayInputStream(bytes, 0, end));
+            changes.forEach((key, value) -> {
+                if (value.toString().isEmpty()) {
+                    properties.remove(key);
+                } else {
+                    properties.put(key, value);
+                }
+            });
+            for (int i = 0; i < end; i++) {
+                if (bytes[i] == '\n') {
+                    logged++;
+                }
+            }
+            return end;
+        }
+
+        private void append(String key, String value) throws IOException {
+            if (++logged > Math.max(MIN_COMPACTION, properties.size())) {
+                compact();
+                return;
+            }
+            byte[] line = line(key, value);
+            Files.write(log, line, StandardOpenOption.APPEND);
+            offset += line.length;
+        }
+
+        private void compact() throws IOException {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "assets", ".tmp");
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                properties.store(os, null);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            generation = UUID.randomUUID().toString();
+            byte[] header = ("#" + generation + "\n").getBytes(StandardCharsets.ISO_8859_1);
+            tmp = Files.createTempFile(log.getParent(), "assets", ".tmp");
+            Files.write(tmp, header);
+            Files.move(tmp, log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            offset = header.length;
+            logged = 0;
+        }
+
+        private static String header(FileChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            channel.read(buffer, 0);
+            String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1);
+            int end = text.indexOf('\n');
+            return text.startsWith("#") && end > 0 ? text.substring(1, end) : "";
+        }
+
+        private static byte[] line(String key, String value) throws IOException {
+            // let Properties do the escaping and drop the date comment it writes first
+            Properties entry = new Properties();
+            entry.setProperty(key, value);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entry.store(out, null);
+            String text = out.toString(StandardCharsets.ISO_8859_1);
+            return text.substring(text.indexOf('\n') + 1).getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+    }
+
+}
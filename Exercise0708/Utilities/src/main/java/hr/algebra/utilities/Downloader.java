@@ -0,0 +1,198 @@
+package hr.algebra.utilities;
+
+import hr.algebra.factory.HttpClientFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Downloads a URL to a file. Bytes go to a .part file that is renamed onto
+ * the destination only once complete, so a failed download never leaves a
+ * truncated file behind. Responses larger than MAX_BYTES are rejected,
+ * and a download that breaks off is resumed with an HTTP Range request
+ * when the server sent a validator for If-Range. Client errors other than
+ * 408 and 429 are not retried, and nothing is left behind once the
+ * download gives up.
+ */
+public class Downloader {
+
+    private static final String PATH = "/config/download.properties";
+    private static final String MAX_BYTES = "MAX_BYTES";
+    private static final String MAX_ATTEMPTS = "MAX_ATTEMPTS";
+
+    private static final String PART = ".part";
+    private static final String VALIDATOR = ".validator";
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String IDENTITY = "identity";
+    private static final String RANGE = "Range";
+    private static final String IF_RANGE = "If-Range";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String CONTENT_RANGE = "Content-Range";
+    private static final String BYTES = "bytes ";
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String WEAK_ETAG = "W/";
+    private static final int HTTP_PARTIAL = 206;
+    private static final int HTTP_BAD_REQUEST = 400;
+    private static final int HTTP_REQUEST_TIMEOUT = 408;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_INTERNAL_ERROR = 500;
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Properties PROPERTIES = new Properties();
+
+    static {
+        try (InputStream is = Downloader.class.getResourceAsStream(PATH)) {
+            PROPERTIES.load(is);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Downloader() {
+    }
+
+    public static void download(String url, Path dest) throws IOException, InterruptedException {
+        download(url, dest, getLong(MAX_BYTES, 20 * 1024 * 1024), getLong(MAX_ATTEMPTS, 3));
+    }
+
+    static void download(String url, Path dest, long maxBytes, long maxAttempts) throws IOException, InterruptedException {
+        Path part = dest.resolveSibling(dest.getFileName() + PART);
+        Path validator = dest.resolveSibling(dest.getFileName() + VALIDATOR);
+
+        IOException failure = null;
+        // a single attempt at least, otherwise there is no failure to report
+        for (int attempt = 0; attempt < Math.max(1, maxAttempts); attempt++) {
+            long offset = Files.exists(part) && Files.exists(validator) ? Files.size(part) : 0;
+
+            // identity encoding, so Range offsets and byte counts refer to the file itself
+            HttpRequest.Builder request = HttpClientFactory.newRequest(url)
+                    .setHeader(ACCEPT_ENCODING, IDENTITY);
+            if (offset > 0) {
+                request.header(RANGE, "bytes=" + offset + "-")
+                        .header(IF_RANGE, Files.readString(validator));
+            }
+
+            boolean receiving = false;
+            try (HostLimiter.Response response = HostLimiter.open(request.build())) {
+                receiving = true;
+                if (response.statusCode() != HTTP_PARTIAL) {
+                    offset = 0;
+                } else if (rangeStart(response) != offset) {
+                    // not the bytes the part file ends with, start over
+                    clear(part, validator);
+                    failure = new IOException("Unexpected Content-Range from " + url);
+                    continue;
+                }
+                long length = response.headers().firstValueAsLong(CONTENT_LENGTH).orElse(-1);
+                if (length >= 0 && offset + length > maxBytes) {
+                    throw new SizeLimitException(url, maxBytes);
+                }
+                saveValidator(response, validator);
+                try (OutputStream os = Files.newOutputStream(part,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        offset > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+                    copy(url, response.body(), os, offset, maxBytes);
+                }
+            } catch (SizeLimitException e) {
+                clear(part, validator);
+                throw e;
+            } catch (HttpUtils.StatusException e) {
+                clear(part, validator);
+                if (isFinal(e.getStatusCode(), offset)) {
+                    throw e;
+                }
+                failure = e;
+                continue;
+            } catch (IOException e) {
+                failure = e;
+                if (!receiving) {
+                    // e.g. 416, the part file cannot be resumed
+                    clear(part, validator);
+                }
+                continue;
+            }
+
+            Files.move(part, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(validator);
+            return;
+        }
+        clear(part, validator);
+        throw failure;
+    }
+
+    // a retry gets the same answer, except for a 416 to a stale part file
+    private static boolean isFinal(int status, long offset) {
+        return status >= HTTP_BAD_REQUEST && status < HTTP_INTERNAL_ERROR
+                && status != HTTP_REQUEST_TIMEOUT && status != HTTP_TOO_MANY_REQUESTS
+                && !(status == HTTP_RANGE_NOT_SATISFIABLE && offset > 0);
+    }
+
+    // first byte of "bytes first-last/length", -1 if missing or malformed
+    private static long rangeStart(HostLimiter.Response response) {
+        String range = response.headers().firstValue(CONTENT_RANGE).orElse("").trim();
+        int dash = range.indexOf('-');
+        if (!range.startsWith(BYTES) || dash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(range.substring(BYTES.length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void copy(String url, InputStream is, OutputStream os, long offset, long maxBytes) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = offset;
+        int n;
+        while ((n = is.read(buffer)) > 0) {
+            total += n;
+            if (total > maxBytes) {
+                throw new SizeLimitException(url, maxBytes);
+            }
+            os.write(buffer, 0, n);
+        }
+    }
+
+    // If-Range needs a strong validator, otherwise the download can only restart
+    private static void saveValidator(HostLimiter.Response response, Path validator) throws IOException {
+        String value = response.headers().firstValue(ETAG)
+                .filter(etag -> !etag.startsWith(WEAK_ETAG))
+                .or(() -> response.headers().firstValue(LAST_MODIFIED))
+                .orElse(null);
+        if (value == null) {
+            Files.deleteIfExists(validator);
+        } else {
+            Files.writeString(validator, value);
+        }
+    }
+
+    private static void clear(Path part, Path validator) throws IOException {
+        Files.deleteIfExists(part);
+        Files.deleteIfExists(validator);
+    }
+
+    private static long getLong(String key, long defaultValue) {
+        String value = PROPERTIES.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public static class SizeLimitException extends IOException {
+
+        public SizeLimitException(String url, long maxBytes) {
+            super(url + " is larger than " + maxBytes + " bytes");
+        }
+
+    }
+
+}
@@ -5,11 +5,8 @@
  */
 package hr.algebra.utilities;
 
-import hr.algebra.factory.UrlConnectionFactory;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -39,12 +36,9 @@ public class FileUtils {
         }
     }
 
-    public static void copyFromUrl(String src, String dest) throws IOException {
+    public static void copyFromUrl(String src, String dest) throws IOException, InterruptedException {
         createDirHiearchy(dest);
-        HttpURLConnection con = UrlConnectionFactory.getHttpUrlConnection(src);
-        try (InputStream is = con.getInputStream()) {
-            Files.copy(is, Paths.get(dest));
-        }
+        Downloader.download(src, Paths.get(dest));
     }
 
     private FileUtils() {
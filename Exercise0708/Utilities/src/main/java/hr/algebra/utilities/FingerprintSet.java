@@ -0,0 +1,116 @@
+package hr.algebra.utilities;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Set of strings kept only as 64-bit hashes in one open addressing table,
+ * about 16 bytes per value instead of the string itself. Two values with
+ * the same hash count as one; with a million values the chance of any
+ * such collision is below one in ten million. Not thread safe.
+ */
+public class FingerprintSet {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    // 0 marks a free slot, a value hashing to it is stored as this instead
+    private static final long ZERO = 1;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] slots;
+    private int size;
+
+    public FingerprintSet(int expectedSize) {
+        slots = new long[capacity(expectedSize)];
+    }
+
+    /**
+     * @return false if the value was in the set already
+     */
+    public boolean add(String value) {
+        long fingerprint = fingerprint(value);
+        int slot = find(slots, fingerprint);
+        if (slots[slot] == fingerprint) {
+            return false;
+        }
+        slots[slot] = fingerprint;
+        if (++size > slots.length / 2) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(String value) {
+        long fingerprint = fingerprint(value);
+        return slots[find(slots, fingerprint)] == fingerprint;
+    }
+
+    public boolean remove(String value) {
+        long fingerprint = fingerprint(value);
+        int slot = find(slots, fingerprint);
+        if (slots[slot] != fingerprint) {
+            return false;
+        }
+        // shift later entries of the probe run back, so none becomes unreachable
+        int mask = slots.length - 1;
+        int free = slot;
+        for (int next = (free + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int home = home(slots[next], mask);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                slots[free] = slots[next];
+                free = next;
+            }
+        }
+        slots[free] = 0;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] grown = new long[slots.length * 2];
+        for (long fingerprint : slots) {
+            if (fingerprint != 0) {
+                grown[find(grown, fingerprint)] = fingerprint;
+            }
+        }
+        slots = grown;
+    }
+
+    // the slot holding the fingerprint, or the free slot it belongs in
+    private static int find(long[] slots, long fingerprint) {
+        int mask = slots.length - 1;
+        int slot = home(fingerprint, mask);
+        while (slots[slot] != 0 && slots[slot] != fingerprint) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int home(long fingerprint, int mask) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private static int capacity(int expectedSize) {
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, expectedSize) * 2L) * 2);
+        return (int) Math.min(1 << 30, capacity);
+    }
+
+    private static long fingerprint(String value) {
+        long hash = FNV_OFFSET;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        // finalizer from MurmurHash3, spreads FNV output over all 64 bits
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? ZERO : hash;
+    }
+
+}
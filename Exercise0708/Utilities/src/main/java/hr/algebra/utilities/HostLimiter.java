@@ -0,0 +1,236 @@
+package hr.algebra.utilities;
+
+import hr.algebra.factory.HttpClientFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Limits concurrent downloads per host with an AIMD window. Every fast,
+ * successful response widens the window by about one request per round
+ * trip; errors, 429 / 503 and responses much slower than the host's usual
+ * latency shrink it. Retry-After blocks the whole host for the given time.
+ */
+public class HostLimiter {
+
+    private static final Logger LOGGER = Logger.getLogger(HostLimiter.class.getName());
+
+    private static final double INITIAL_LIMIT = 4;
+    private static final double MIN_LIMIT = 1;
+    private static final double MAX_LIMIT = 64;
+    private static final double BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(5);
+    private static final Duration MAX_RETRY_AFTER = Duration.ofMinutes(5);
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_UNAVAILABLE = 503;
+    private static final int HTTP_INTERNAL_ERROR = 500;
+    private static final String RETRY_AFTER = "Retry-After";
+
+    private static final Map<String, Host> HOSTS = new ConcurrentHashMap<>();
+
+    private HostLimiter() {
+    }
+
+    /**
+     * Sends the request once the host has room for it. The permit is held
+     * until the returned response is closed.
+     */
+    public static Response open(HttpRequest request) throws IOException, InterruptedException {
+        URI url = request.uri();
+        String name = url.getHost();
+        Host host = HOSTS.computeIfAbsent(name == null ? "" : name, key -> new Host());
+
+        for (int attempt = 1;; attempt++) {
+            host.acquire();
+            boolean handedOver = false;
+            try {
+                long start = System.nanoTime();
+                HttpResponse<InputStream> response;
+                try {
+                    response = HttpClientFactory.send(request);
+                } catch (IOException e) {
+                    host.onFailure();
+                    throw e;
+                }
+                int status = response.statusCode();
+                if (status == HTTP_TOO_MANY_REQUESTS || status == HTTP_UNAVAILABLE) {
+                    response.body().close();
+                    Duration retryAfter = retryAfter(response);
+                    host.onThrottled(retryAfter);
+                    LOGGER.log(Level.FINE, "{0} throttled for {1}", new Object[]{name, retryAfter});
+                    if (attempt < MAX_ATTEMPTS) {
+                        continue;
+                    }
+                    throw new HttpUtils.StatusException(status, url);
+                }
+                host.onResponse(System.nanoTime() - start, status < HTTP_INTERNAL_ERROR);
+                Response limited = new Response(response, HttpUtils.openStream(response), host);
+                handedOver = true;
+                return limited;
+            } finally {
+                if (!handedOver) {
+                    host.release();
+                }
+            }
+        }
+    }
+
+    private static Duration retryAfter(HttpResponse<?> response) {
+        Duration retryAfter = response.headers().firstValue(RETRY_AFTER).map(value -> {
+            try {
+                return Duration.ofSeconds(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Duration.between(ZonedDateTime.now(), date);
+                } catch (Exception ex) {
+                    return DEFAULT_RETRY_AFTER;
+                }
+            }
+        }).orElse(DEFAULT_RETRY_AFTER);
+        if (retryAfter.isNegative()) {
+            return Duration.ZERO;
+        }
+        return retryAfter.compareTo(MAX_RETRY_AFTER) > 0 ? MAX_RETRY_AFTER : retryAfter;
+    }
+
+    private static final class Host {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+
+        private double limit = INITIAL_LIMIT;
+        private int inFlight;
+        private long blockedUntil = System.nanoTime();
+        private double baseline = -1;
+
+        private void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (true) {
+                    long blocked = blockedUntil - System.nanoTime();
+                    if (blocked > 0) {
+                        changed.awaitNanos(blocked);
+                    } else if (inFlight >= (int) limit) {
+                        changed.await();
+                    } else {
+                        break;
+                    }
+                }
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release() {
+            lock.lock();
+            try {
+                inFlight--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void onResponse(long latency, boolean ok) {
+            lock.lock();
+            try {
+                if (!ok) {
+                    limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+                    return;
+                }
+                // slowly drifting minimum, so a host that gets slower for good is re-learned
+                baseline = baseline < 0 ? latency : Math.min(latency, baseline + (latency - baseline) * 0.01);
+                if (latency > baseline * LATENCY_TOLERANCE) {
+                    limit = Math.max(MIN_LIMIT, limit * LATENCY_BACKOFF);
+                } else {
+                    limit = Math.min(MAX_LIMIT, limit + 1 / limit);
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void onThrottled(Duration retryAfter) {
+            lock.lock();
+            try {
+                limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+                blockedUntil = Math.max(blockedUntil, System.nanoTime() + retryAfter.toNanos());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void onFailure() {
+            lock.lock();
+            try {
+                limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+    }
+
+    public static final class Response implements Closeable {
+
+        private final HttpResponse<InputStream> response;
+        private final InputStream body;
+        private final Host host;
+        private boolean released;
+
+        private Response(HttpResponse<InputStream> response, InputStream body, Host host) {
+            this.response = response;
+            this.body = body;
+            this.host = host;
+        }
+
+        public int statusCode() {
+            return response.statusCode();
+        }
+
+        public HttpHeaders headers() {
+            return response.headers();
+        }
+
+        /**
+         * Decoded response body.
+         */
+        public InputStream body() {
+            return body;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                body.close();
+            } finally {
+                if (!released) {
+                    released = true;
+                    host.release();
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package hr.algebra.utilities;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Opens response bodies with gzip / deflate decoded on the fly and counts
+ * the bytes read before and after decoding.
+ */
+public class HttpUtils {
+
+    private static final int HTTP_BAD_REQUEST = 400;
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String GZIP = "gzip";
+    private static final String X_GZIP = "x-gzip";
+    private static final String DEFLATE = "deflate";
+
+    private static final LongAdder WIRE_BYTES = new LongAdder();
+    private static final LongAdder BODY_BYTES = new LongAdder();
+
+    private HttpUtils() {
+    }
+
+    /**
+     * Returns the decoded body, or closes it and throws for error statuses.
+     */
+    public static InputStream openStream(HttpResponse<InputStream> response) throws IOException {
+        if (response.statusCode() >= HTTP_BAD_REQUEST) {
+            response.body().close();
+            throw new StatusException(response.statusCode(), response.uri());
+        }
+        InputStream wire = new CountingInputStream(response.body(), WIRE_BYTES);
+        String encoding = response.headers().firstValue(CONTENT_ENCODING).orElse(null);
+        InputStream body;
+        if (GZIP.equalsIgnoreCase(encoding) || X_GZIP.equalsIgnoreCase(encoding)) {
+            body = new GZIPInputStream(wire);
+        } else if (DEFLATE.equalsIgnoreCase(encoding)) {
+            body = inflate(wire);
+        } else {
+            return new CountingInputStream(wire, BODY_BYTES);
+        }
+        return new CountingInputStream(body, BODY_BYTES);
+    }
+
+    /**
+     * Bytes received over the network, compressed where the server did so.
+     */
+    public static long getWireBytes() {
+        return WIRE_BYTES.sum();
+    }
+
+    /**
+     * Bytes handed to callers after decompression.
+     */
+    public static long getBodyBytes() {
+        return BODY_BYTES.sum();
+    }
+
+    // "deflate" should be zlib wrapped, but some servers send raw deflate
+    private static InputStream inflate(InputStream is) throws IOException {
+        PushbackInputStream pis = new PushbackInputStream(is, 2);
+        byte[] header = pis.readNBytes(2);
+        pis.unread(header);
+        boolean zlib = header.length == 2
+                && (header[0] & 0x0f) == 8
+                && ((header[0] & 0xff) << 8 | (header[1] & 0xff)) % 31 == 0;
+        Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(pis, inflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final LongAdder counter;
+
+        CountingInputStream(InputStream in, LongAdder counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.add(n);
+            }
+            return n;
+        }
+
+    }
+
+    public static class StatusException extends IOException {
+
+        private final int statusCode;
+
+        public StatusException(int statusCode, URI url) {
+            super("Server returned HTTP " + statusCode + " for " + url);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+    }
+
+}
@@ -0,0 +1,133 @@
+package hr.algebra.utilities;
+
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import javax.swing.ImageIcon;
+
+/**
+ * Decoded icons by path and size, least recently used first out. The
+ * budget (CACHE_BYTES in config/icons.properties) counts raster bytes,
+ * 4 per pixel, so a few large icons weigh as much as many small ones.
+ * Cached paths are not checked on the disk again, which fits the
+ * content addressed assets that never change.
+ */
+public class IconCache {
+
+    private static final String PATH = "/config/icons.properties";
+    private static final String CACHE_BYTES = "CACHE_BYTES";
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final Properties PROPERTIES = new Properties();
+
+    private static final Map<Key, ImageIcon> ICONS = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long budget;
+    private static long bytes;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    static {
+        try (InputStream is = IconCache.class.getResourceAsStream(PATH)) {
+            PROPERTIES.load(is);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        budget = Long.parseLong(PROPERTIES.getProperty(CACHE_BYTES, String.valueOf(64L * 1024 * 1024)).trim());
+    }
+
+    private IconCache() {
+    }
+
+    /**
+     * @return the cached icon or null, never touches the disk
+     */
+    public static synchronized ImageIcon getIfPresent(String path, int width, int height) {
+        ImageIcon icon = ICONS.get(new Key(path, width, height));
+        if (icon != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return icon;
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    public static synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public static synchronized long getBytes() {
+        return bytes;
+    }
+
+    public static synchronized String getStats() {
+        return String.format("%d icons, %,d of %,d bytes, %d hits, %d misses, %d evictions",
+                ICONS.size(), bytes, budget, hits, misses, evictions);
+    }
+
+    /**
+     * Adds a loaded icon and evicts least recently used ones over the budget.
+     */
+    public static synchronized void put(String path, int width, int height, ImageIcon icon) {
+        long size = size(icon);
+        if (size > budget) {
+            return;
+        }
+        ImageIcon previous = ICONS.put(new Key(path, width, height), icon);
+        if (previous != null) {
+            bytes -= size(previous);
+        }
+        bytes += size;
+        Iterator<ImageIcon> eldest = ICONS.values().iterator();
+        while (bytes > budget) {
+            bytes -= size(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long size(ImageIcon icon) {
+        return (long) icon.getIconWidth() * icon.getIconHeight() * BYTES_PER_PIXEL;
+    }
+
+    private static final class Key {
+
+        private final String path;
+        private final int width;
+        private final int height;
+
+        private Key(String path, int width, int height) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return path.equals(other.path) && width == other.width && height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, width, height);
+        }
+
+    }
+
+}
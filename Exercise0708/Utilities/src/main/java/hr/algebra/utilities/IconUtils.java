@@ -5,11 +5,8 @@
  */
 package hr.algebra.utilities;
 
-import java.awt.Image;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 
 /**
@@ -20,9 +17,10 @@ public class IconUtils {
     
     private IconUtils() {}
     
+    /**
+     * Scaled up or down to fit width x height, keeping the aspect ratio.
+     */
     public static ImageIcon createIcon(File file, int width, int height) throws IOException {
-        BufferedImage bufferedImage = ImageIO.read(file);
-        Image image = bufferedImage.getScaledInstance(width, height,Image.SCALE_SMOOTH);
-        return new ImageIcon(image);
+        return new ImageIcon(ImageScaler.scale(file, width, height));
     }    
 }
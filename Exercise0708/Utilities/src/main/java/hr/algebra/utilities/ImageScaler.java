@@ -0,0 +1,84 @@
+package hr.algebra.utilities;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Scales images to fit a box, keeping the aspect ratio. Large images are
+ * subsampled while decoding, so only about twice the target size is ever
+ * held in memory, and the rest is done with bilinear halving steps.
+ * Smaller images are enlarged, so they still fill the box the way
+ * getScaledInstance did, apart from the aspect ratio.
+ */
+public class ImageScaler {
+
+    // decode at least this much larger than the target, so the final
+    // resize has neighbouring pixels to average instead of just skipping them
+    private static final int OVERSAMPLING = 2;
+
+    private ImageScaler() {
+    }
+
+    public static BufferedImage scale(File file, int width, int height) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            if (iis == null) {
+                throw new IOException("Cannot read " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                double ratio = Math.min(
+                        (double) Math.max(1, width) / sourceWidth,
+                        (double) Math.max(1, height) / sourceHeight);
+                int targetWidth = Math.max(1, (int) Math.round(sourceWidth * ratio));
+                int targetHeight = Math.max(1, (int) Math.round(sourceHeight * ratio));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, (int) (1 / ratio) / OVERSAMPLING);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return resize(reader.read(0, param), targetWidth, targetHeight);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        // one bilinear pass only blends neighbours, so halve until close
+        while (image.getWidth() / 2 >= width && image.getHeight() / 2 >= height) {
+            image = draw(image, image.getWidth() / 2, image.getHeight() / 2);
+        }
+        if (image.getWidth() != width || image.getHeight() != height) {
+            image = draw(image, width, height);
+        }
+        return image;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+}
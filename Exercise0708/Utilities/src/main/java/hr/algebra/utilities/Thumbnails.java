@@ -0,0 +1,183 @@
+package hr.algebra.utilities;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Pre-scaled JPEG copies of stored assets, one per size in SIZES, named
+ * &lt;asset&gt;_&lt;width&gt;x&lt;height&gt;.jpg next to the asset. Assets
+ * are content addressed, so the name alone tells whether a thumbnail of an
+ * asset exists. The smallest one is the thumbnail recorded on an article.
+ */
+public class Thumbnails {
+
+    private static final String PATH = "/config/thumbnails.properties";
+    private static final String SIZES = "SIZES";
+    private static final String QUALITY = "QUALITY";
+
+    private static final String SEPARATOR = "_";
+    private static final String EXT = ".jpg";
+    private static final String FORMAT = "jpeg";
+
+    private static final Properties PROPERTIES = new Properties();
+    private static final List<int[]> BOXES = new ArrayList<>();
+
+    // scaling is CPU bound, so no more threads than cores
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("thumbnails-", 0).daemon().factory());
+
+    static {
+        try (InputStream is = Thumbnails.class.getResourceAsStream(PATH)) {
+            PROPERTIES.load(is);
+            for (String size : PROPERTIES.getProperty(SIZES, "501x343").split(",")) {
+                String[] parts = size.trim().split("x");
+                BOXES.add(new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])});
+            }
+            BOXES.sort(Comparator.comparingInt(box -> box[0] * box[1]));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Thumbnails() {
+    }
+
+    /**
+     * Creates the thumbnails in the background. An asset that cannot be
+     * scaled only loses its thumbnails, so the future never fails.
+     *
+     * @return the future of the {@link #pathFor(String) recorded thumbnail},
+     * null if it could not be created
+     */
+    public static CompletableFuture<String> createAsync(String assetPath) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                create(assetPath);
+                return pathFor(assetPath);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * @return the path of the smallest thumbnail of the asset, whether it
+     * exists yet or not, null without configured sizes
+     */
+    public static String pathFor(String assetPath) {
+        return BOXES.isEmpty() ? null : thumbnailPath(assetPath, BOXES.get(0));
+    }
+
+    /**
+     * Creates every configured thumbnail of the asset that does not exist yet.
+     */
+    public static void create(String assetPath) throws IOException {
+        for (int[] box : BOXES) {
+            Path thumbnail = Paths.get(thumbnailPath(assetPath, box));
+            if (Files.exists(thumbnail)) {
+                continue;
+            }
+            BufferedImage image = opaque(ImageScaler.scale(new File(assetPath), box[0], box[1]));
+            // not createTempFile, its owner-only permissions would stick to the thumbnail
+            Path tmp = thumbnail.resolveSibling(thumbnail.getFileName() + "." + Thread.currentThread().threadId() + ".tmp");
+            try {
+                write(image, tmp);
+                Files.move(tmp, thumbnail, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * @return the smallest existing thumbnail covering width x height, or
+     * the asset itself
+     */
+    public static String forSize(String assetPath, int width, int height) {
+        for (int[] box : BOXES) {
+            if (box[0] >= width && box[1] >= height) {
+                String thumbnail = thumbnailPath(assetPath, box);
+                if (Files.exists(Paths.get(thumbnail))) {
+                    return thumbnail;
+                }
+            }
+        }
+        return assetPath;
+    }
+
+    static void delete(String assetPath) throws IOException {
+        Path asset = Paths.get(assetPath);
+        Path dir = asset.toAbsolutePath().getParent();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> thumbnails = Files.newDirectoryStream(dir, baseName(asset) + SEPARATOR + "*" + EXT)) {
+            for (Path thumbnail : thumbnails) {
+                Files.deleteIfExists(thumbnail);
+            }
+        }
+    }
+
+    private static String thumbnailPath(String assetPath, int[] box) {
+        Path asset = Paths.get(assetPath);
+        return asset.resolveSibling(baseName(asset) + SEPARATOR + box[0] + "x" + box[1] + EXT).toString();
+    }
+
+    private static String baseName(Path asset) {
+        String name = asset.getFileName().toString();
+        int dot = name.lastIndexOf(".");
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    // JPEG has no alpha, transparent parts become white
+    private static BufferedImage opaque(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private static void write(BufferedImage image, Path file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(FORMAT).next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(file.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Float.parseFloat(PROPERTIES.getProperty(QUALITY, "0.8").trim()));
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+}
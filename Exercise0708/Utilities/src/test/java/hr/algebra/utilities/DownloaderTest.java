@@ -0,0 +1,223 @@
+package hr.algebra.utilities;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DownloaderTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final byte[] BODY = new byte[100_000];
+
+    static {
+        new Random(42).nextBytes(BODY);
+    }
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private String url;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final List<String> ifRanges = new CopyOnWriteArrayList<>();
+    // bytes sent before the connection is dropped, BODY.length sends everything
+    private volatile int breakAfter = BODY.length;
+    private volatile boolean breakOnce;
+    private volatile boolean chunked;
+    // answers a Range request with the whole body as a 206
+    private volatile boolean wrongRange;
+    // sent with an empty body instead of the image, 0 serves the image
+    private volatile int errorStatus;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/image.jpg", this::serve);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/image.jpg";
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void resumesBrokenDownloadWithRange() throws Exception {
+        breakAfter = 40_000;
+        Path dest = dir.resolve("image.jpg");
+
+        Downloader.download(url, dest, BODY.length, 3);
+
+        assertArrayEquals(BODY, Files.readAllBytes(dest));
+        assertEquals(Arrays.asList(null, "bytes=40000-"), ranges);
+        assertEquals(ETAG, ifRanges.get(1));
+        assertFalse(Files.exists(dir.resolve("image.jpg.part")));
+        assertFalse(Files.exists(dir.resolve("image.jpg.validator")));
+    }
+
+    @Test
+    void restartsWhenContentRangeDoesNotMatch() throws Exception {
+        breakAfter = 40_000;
+        breakOnce = true;
+        wrongRange = true;
+        Path dest = dir.resolve("image.jpg");
+
+        Downloader.download(url, dest, BODY.length, 3);
+
+        assertArrayEquals(BODY, Files.readAllBytes(dest));
+        assertEquals(Arrays.asList(null, "bytes=40000-", null), ranges);
+    }
+
+    @Test
+    void clientErrorIsNotRetried() {
+        errorStatus = 404;
+        Path dest = dir.resolve("image.jpg");
+
+        HttpUtils.StatusException e = assertThrows(HttpUtils.StatusException.class,
+                () -> Downloader.download(url, dest, BODY.length, 3));
+
+        assertEquals(404, e.getStatusCode());
+        assertEquals(1, ranges.size());
+    }
+
+    @Test
+    void requestTimeoutIsRetried() {
+        errorStatus = 408;
+        Path dest = dir.resolve("image.jpg");
+
+        assertThrows(HttpUtils.StatusException.class, () -> Downloader.download(url, dest, BODY.length, 3));
+
+        assertEquals(3, ranges.size());
+    }
+
+    @Test
+    void givingUpRemovesPartFiles() throws Exception {
+        breakAfter = 40_000;
+        Path dest = dir.resolve("image.jpg");
+
+        assertThrows(IOException.class, () -> Downloader.download(url, dest, BODY.length, 1));
+
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(), files.toList());
+        }
+    }
+
+    @Test
+    void rejectsDeclaredLengthOverLimit() {
+        Path dest = dir.resolve("image.jpg");
+
+        assertThrows(Downloader.SizeLimitException.class, () -> Downloader.download(url, dest, BODY.length - 1, 3));
+
+        assertEquals(1, ranges.size());
+        assertFalse(Files.exists(dest));
+        assertFalse(Files.exists(dir.resolve("image.jpg.part")));
+    }
+
+    @Test
+    void rejectsChunkedBodyOverLimit() {
+        chunked = true;
+        Path dest = dir.resolve("image.jpg");
+
+        assertThrows(Downloader.SizeLimitException.class, () -> Downloader.download(url, dest, 10_000, 3));
+
+        assertEquals(1, ranges.size());
+        assertFalse(Files.exists(dest));
+        assertFalse(Files.exists(dir.resolve("image.jpg.part")));
+    }
+
+    @Test
+    void failedDownloadLeavesDestinationUntouched() throws Exception {
+        breakAfter = 0;
+        Path dest = dir.resolve("image.jpg");
+        Files.writeString(dest, "old");
+
+        assertThrows(IOException.class, () -> Downloader.download(url, dest, BODY.length, 2));
+
+        assertEquals("old", Files.readString(dest));
+        assertEquals(2, ranges.size());
+    }
+
+    @Test
+    void completedDownloadReplacesDestination() throws Exception {
+        Path dest = dir.resolve("image.jpg");
+        Files.writeString(dest, "old");
+
+        Downloader.download(url, dest, BODY.length, 3);
+
+        assertArrayEquals(BODY, Files.readAllBytes(dest));
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(dest), files.toList());
+        }
+    }
+
+    @Test
+    void noAttemptsConfiguredStillTriesOnce() {
+        breakAfter = 0;
+        Path dest = dir.resolve("image.jpg");
+
+        // used to throw a null failure, i.e. a NullPointerException
+        assertThrows(IOException.class, () -> Downloader.download(url, dest, BODY.length, 0));
+
+        assertEquals(1, ranges.size());
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        ranges.add(range);
+        ifRanges.add(exchange.getRequestHeaders().getFirst("If-Range"));
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        if (errorStatus != 0) {
+            exchange.sendResponseHeaders(errorStatus, -1);
+            exchange.close();
+            return;
+        }
+
+        int offset = 0;
+        boolean partial = range != null && (wrongRange || ETAG.equals(exchange.getRequestHeaders().getFirst("If-Range")));
+        if (partial && wrongRange) {
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes 0-" + (BODY.length - 1) + "/" + BODY.length);
+            exchange.sendResponseHeaders(206, BODY.length);
+        } else if (partial) {
+            offset = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + offset + "-" + (BODY.length - 1) + "/" + BODY.length);
+            exchange.sendResponseHeaders(206, BODY.length - offset);
+        } else {
+            exchange.sendResponseHeaders(200, chunked ? 0 : BODY.length);
+        }
+
+        int end = partial ? BODY.length : breakAfter;
+        OutputStream os = exchange.getResponseBody();
+        os.write(BODY, offset, end - offset);
+        os.flush();
+        if (end < BODY.length) {
+            if (breakOnce) {
+                breakAfter = BODY.length;
+            }
+            // drop the connection in the middle of the body
+            throw new IOException("Connection dropped on purpose");
+        }
+        os.close();
+    }
+
+}
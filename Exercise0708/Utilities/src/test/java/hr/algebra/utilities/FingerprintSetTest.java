@@ -0,0 +1,48 @@
+package hr.algebra.utilities;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FingerprintSetTest {
+
+    @Test
+    void addReportsKnownValues() {
+        FingerprintSet set = new FingerprintSet(0);
+
+        assertTrue(set.add("http://localhost/a"));
+        assertFalse(set.add("http://localhost/a"));
+        assertTrue(set.contains("http://localhost/a"));
+        assertFalse(set.contains("http://localhost/b"));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void matchesHashSetThroughGrowthAndRemovals() {
+        // a small table, so it grows and removals shift long probe runs
+        FingerprintSet set = new FingerprintSet(1);
+        Set<String> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            String value = "http://localhost/articles/" + random.nextInt(50_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value), value);
+            } else {
+                assertEquals(expected.add(value), set.add(value), value);
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < 50_000; i++) {
+            String value = "http://localhost/articles/" + i;
+            assertEquals(expected.contains(value), set.contains(value), value);
+        }
+    }
+
+}
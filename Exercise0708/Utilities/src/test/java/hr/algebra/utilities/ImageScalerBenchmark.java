@@ -0,0 +1,98 @@
+package hr.algebra.utilities;
+
+import com.sun.management.ThreadMXBean;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * Scales one generated JPEG the way IconUtils used to, with ImageIO.read
+ * and getScaledInstance, and with ImageScaler, and prints the time and
+ * the bytes allocated per icon. The old path is drawn into an image,
+ * as showing the icon would, so its lazy scaling is counted.
+ *
+ * mvn -pl Utilities test-compile, then run this class with the Utilities
+ * test classpath; the arguments are the source width and height, the box
+ * to fit and the number of passes (default 4000 3000 501 343 5).
+ */
+class ImageScalerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        int sourceWidth = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int sourceHeight = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 501;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 343;
+        int passes = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        File file = Files.createTempFile("benchmark", ".jpg").toFile();
+        try {
+            ImageIO.write(generate(sourceWidth, sourceHeight), "jpg", file);
+            System.out.printf("%dx%d JPEG of %.1f MB scaled into %dx%d%n",
+                    sourceWidth, sourceHeight, file.length() / 1e6, width, height);
+
+            ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+            for (int pass = 1; pass <= passes; pass++) {
+                System.gc();
+                long allocated = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                BufferedImage old = scaledInstance(file, width, height);
+                report(pass, "getScaledInstance", start, allocated, old, threads);
+
+                System.gc();
+                allocated = threads.getCurrentThreadAllocatedBytes();
+                start = System.nanoTime();
+                BufferedImage scaled = ImageScaler.scale(file, width, height);
+                report(pass, "ImageScaler", start, allocated, scaled, threads);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static BufferedImage scaledInstance(File file, int width, int height) throws Exception {
+        Image image = ImageIO.read(file).getScaledInstance(width, height, Image.SCALE_SMOOTH);
+        BufferedImage rendered = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rendered.createGraphics();
+        try {
+            // SCALE_SMOOTH images are produced synchronously when drawn
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rendered;
+    }
+
+    private static void report(int pass, String name, long start, long allocated, BufferedImage image, ThreadMXBean threads) {
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+        System.out.printf("pass %d %-18s %8.1f ms %8.1f MB allocated, %dx%d%n",
+                pass, name, nanos / 1e6, allocated / 1e6, image.getWidth(), image.getHeight());
+    }
+
+    private static BufferedImage generate(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setPaint(new GradientPaint(0, 0, Color.BLUE, width, height, Color.ORANGE));
+            g.fillRect(0, 0, width, height);
+            // some detail, so the JPEG is not trivially small
+            Random random = new Random(42);
+            for (int i = 0; i < 2000; i++) {
+                g.setColor(new Color(random.nextInt()));
+                g.fillOval(random.nextInt(width), random.nextInt(height), 20 + random.nextInt(200), 20 + random.nextInt(200));
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+}